@@ -0,0 +1,132 @@
+package com.github.hlvx.websocket.benchmarks;
+
+import com.github.hlvx.websocket.annotations.TextCommand;
+import com.github.hlvx.websocket.servers.WebSocketServer;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.json.JsonObject;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the heap held by idle connections that each sent one command, as the growth of the
+ * heap between the first and the second half of the connections.
+ * <p>
+ * The same number of raw socket clients connect to a bare Vert.x WebSocket server, then to a
+ * {@link WebSocketServer}. The difference is what this library adds to a connection on top of
+ * Vert.x and Netty. Exits with status 1 if it is above the budget.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.github.hlvx.websocket.benchmarks.ConnectionFootprint \
+ *     [connections=5000] [budget bytes=256]
+ * </pre>
+ */
+public class ConnectionFootprint {
+    private static final int PORT = 8099;
+    private static final byte[] MESSAGE = "{\"type\":\"ping\"}".getBytes(StandardCharsets.UTF_8);
+
+    public static class Service {
+        @TextCommand(command = "ping")
+        public JsonObject ping(JsonObject data) {
+            return data;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        long budget = args.length > 1 ? Long.parseLong(args[1]) : 256;
+        long bare = measure(false, connections);
+        long server = measure(true, connections);
+        long overhead = server - bare;
+        System.out.printf("bare Vert.x: %d bytes per connection%n", bare);
+        System.out.printf("WebSocketServer: %d bytes per connection%n", server);
+        System.out.printf("overhead: %d bytes per connection, budget %d%n", overhead, budget);
+        if (overhead > budget) System.exit(1);
+    }
+
+    /**
+     * Each run has its own Vert.x instance so that nothing of the previous one is released while
+     * measuring.
+     */
+    private static long measure(boolean library, int connections) throws Exception {
+        Vertx vertx = Vertx.vertx();
+        List<SocketChannel> clients = new ArrayList<>(connections);
+        try {
+            listen(vertx, library);
+            // Memory allocated once, such as the chunks of buffer pools, is taken by the first half
+            for (int i = 0; i < connections / 2; ++i) clients.add(connect());
+            long before = usedHeap();
+            for (int i = connections / 2; i < connections; ++i) clients.add(connect());
+            long after = usedHeap();
+            return (after - before) / (connections - connections / 2);
+        } finally {
+            for (SocketChannel client : clients) client.close();
+            CompletableFuture<Void> closed = new CompletableFuture<>();
+            vertx.close(ar -> closed.complete(null));
+            closed.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static HttpServer listen(Vertx vertx, boolean library) throws Exception {
+        CompletableFuture<HttpServer> listening = new CompletableFuture<>();
+        if (library) {
+            WebSocketServer server = new WebSocketServer(vertx);
+            server.addServices(new Service());
+            server.start(PORT, ar -> listening.complete(ar.result()));
+        } else {
+            // Without the compression extension, as WebSocketServer by default
+            vertx.createHttpServer(new HttpServerOptions().setPerMessageWebsocketCompressionSupported(false)
+                    .setPerFrameWebsocketCompressionSupported(false))
+                    .websocketHandler(ws -> ws.textMessageHandler(ws::writeTextMessage))
+                    .listen(PORT, ar -> listening.complete(ar.result()));
+        }
+        return listening.get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Opens a connection, sends one text frame once the handshake is done and waits for the
+     * response.
+     */
+    private static SocketChannel connect() throws IOException {
+        SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", PORT));
+        channel.write(ByteBuffer.wrap(("GET / HTTP/1.1\r\nHost: localhost\r\nUpgrade: websocket\r\n"
+                + "Connection: Upgrade\r\nSec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n"
+                + "Sec-WebSocket-Version: 13\r\n\r\n").getBytes(StandardCharsets.US_ASCII)));
+        ByteBuffer in = ByteBuffer.allocate(1024);
+        read(channel, in, 0);
+        ByteBuffer frame = ByteBuffer.allocate(6 + MESSAGE.length);
+        frame.put((byte) 0x81).put((byte) (0x80 | MESSAGE.length)).putInt(0).put(MESSAGE).flip();
+        channel.write(frame);
+        read(channel, in, 2 + MESSAGE.length);
+        return channel;
+    }
+
+    /**
+     * Reads until the response headers and length more bytes are received.
+     */
+    private static void read(SocketChannel channel, ByteBuffer in, int length) throws IOException {
+        while (true) {
+            String received = new String(in.array(), 0, in.position(), StandardCharsets.ISO_8859_1);
+            int headersEnd = received.indexOf("\r\n\r\n");
+            if (headersEnd >= 0 && received.length() >= headersEnd + 4 + length) return;
+            if (channel.read(in) < 0) throw new IOException("Connection closed");
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; ++i) {
+            System.gc();
+            Thread.sleep(200);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,159 @@
+package com.github.hlvx.websocket.benchmarks;
+
+import com.github.hlvx.websocket.annotations.BinaryCommand;
+import com.github.hlvx.websocket.annotations.TextCommand;
+import com.github.hlvx.websocket.io.readers.SimpleBinaryReader;
+import com.github.hlvx.websocket.servers.WebSocketServer;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.WebSocket;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips through an in-process server, each benchmark thread driving its own connection
+ * with a Vert.x WebSocket client. A call sends {@code pipeline} messages and waits for all the
+ * responses, so the score is the latency of a batch and its inverse the throughput.
+ * <p>
+ * Run with {@code -prof gc} to get the allocation rate per operation.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class EndToEndBenchmark {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    public static class Service {
+        @TextCommand(command = "echo")
+        public Future<JsonObject> echo(JsonObject data) {
+            return Future.succeededFuture(data);
+        }
+
+        @TextCommand(command = "blockingEcho")
+        public JsonObject blockingEcho(JsonObject data) {
+            return data;
+        }
+
+        @BinaryCommand(commandId = 1)
+        public Future<Buffer> binaryEcho(Buffer data) {
+            return Future.succeededFuture(data);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Server {
+        Vertx vertx;
+        int port;
+
+        @Setup(Level.Trial)
+        public void start() throws Exception {
+            vertx = Vertx.vertx();
+            WebSocketServer server = new WebSocketServer(vertx);
+            server.setBinaryReader(new SimpleBinaryReader(true));
+            server.addServices(new Service());
+            CompletableFuture<HttpServer> started = new CompletableFuture<>();
+            server.start(0, result -> {
+                if (result.succeeded()) started.complete(result.result());
+                else started.completeExceptionally(result.cause());
+            });
+            port = started.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).actualPort();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws Exception {
+            CompletableFuture<Void> closed = new CompletableFuture<>();
+            vertx.close(result -> closed.complete(null));
+            closed.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        @Param({"1", "16"})
+        public int pipeline;
+
+        @Param({"64"})
+        public int payloadSize;
+
+        Vertx vertx;
+        HttpClient httpClient;
+        WebSocket webSocket;
+        String text;
+        String blockingText;
+        Buffer binary;
+        volatile CountDownLatch pending;
+
+        @Setup(Level.Trial)
+        public void connect(Server server) throws Exception {
+            StringBuilder value = new StringBuilder();
+            while (value.length() < payloadSize) value.append('x');
+            text = new JsonObject().put("type", "echo").put("value", value.toString()).encode();
+            blockingText = new JsonObject().put("type", "blockingEcho").put("value", value.toString()).encode();
+            binary = Buffer.buffer().appendShort((short) 1).appendBytes(new byte[payloadSize]);
+
+            vertx = Vertx.vertx();
+            httpClient = vertx.createHttpClient();
+            CompletableFuture<WebSocket> connected = new CompletableFuture<>();
+            httpClient.websocket(server.port, "localhost", "/", webSocket -> {
+                webSocket.frameHandler(frame -> {
+                    if (frame.isFinal()) pending.countDown();
+                });
+                connected.complete(webSocket);
+            }, connected::completeExceptionally);
+            webSocket = connected.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws Exception {
+            CompletableFuture<Void> closed = new CompletableFuture<>();
+            vertx.close(result -> closed.complete(null));
+            closed.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        void roundTrip(Runnable send) throws InterruptedException {
+            CountDownLatch latch = new CountDownLatch(pipeline);
+            pending = latch;
+            for (int i = 0; i < pipeline; ++i) send.run();
+            if (!latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                throw new IllegalStateException("Responses timed out");
+        }
+    }
+
+    @Benchmark
+    public void text(Client client) throws InterruptedException {
+        client.roundTrip(() -> client.webSocket.writeTextMessage(client.text));
+    }
+
+    @Benchmark
+    public void blockingText(Client client) throws InterruptedException {
+        client.roundTrip(() -> client.webSocket.writeTextMessage(client.blockingText));
+    }
+
+    @Benchmark
+    public void binary(Client client) throws InterruptedException {
+        client.roundTrip(() -> client.webSocket.writeBinaryMessage(client.binary));
+    }
+}
@@ -0,0 +1,80 @@
+package com.github.hlvx.websocket.benchmarks;
+
+import com.github.hlvx.websocket.annotations.Context;
+import com.github.hlvx.websocket.annotations.TextCommand;
+import com.github.hlvx.websocket.io.readers.StreamingJsonReader;
+import com.github.hlvx.websocket.io.writers.JsonWriter;
+import com.github.hlvx.websocket.models.Command;
+import com.github.hlvx.websocket.models.RequestContext;
+import com.github.hlvx.websocket.models.WebSocketContext;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls to command methods through {@link Command#invoke}, against plain reflection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InvokeBenchmark {
+    public static class Service {
+        @TextCommand(command = "echo")
+        public Object echo(JsonObject data) {
+            return data;
+        }
+
+        @TextCommand(command = "withContext")
+        public Object withContext(JsonObject data, @Context WebSocketContext context) {
+            return context;
+        }
+    }
+
+    private final Service service = new Service();
+    private final JsonObject data = new JsonObject().put("type", "echo");
+    private Method echo;
+    private Command echoCommand;
+    private Command contextCommand;
+    private RequestContext requestContext;
+
+    @Setup
+    public void setup() throws Exception {
+        echo = Service.class.getMethod("echo", JsonObject.class);
+        echoCommand = new Command(service, echo, Collections.emptySet(), new int[0]);
+        contextCommand = new Command(service,
+                Service.class.getMethod("withContext", JsonObject.class, WebSocketContext.class),
+                Collections.emptySet(), new int[0]);
+        requestContext = new RequestContext(new WebSocketContext(null, null), "{}", new JsonWriter(),
+                new StreamingJsonReader("type"));
+    }
+
+    @Benchmark
+    public Object reflection() throws Exception {
+        return echo.invoke(service, data);
+    }
+
+    @Benchmark
+    public Object command() throws Throwable {
+        return echoCommand.invoke(requestContext, data);
+    }
+
+    @Benchmark
+    public Object commandWithContext() throws Throwable {
+        return contextCommand.invoke(requestContext, data);
+    }
+}
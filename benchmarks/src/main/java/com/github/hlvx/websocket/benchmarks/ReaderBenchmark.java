@@ -0,0 +1,86 @@
+package com.github.hlvx.websocket.benchmarks;
+
+import com.github.hlvx.websocket.io.readers.JsonPayload;
+import com.github.hlvx.websocket.io.readers.JsonReader;
+import com.github.hlvx.websocket.io.readers.SimpleBinaryReader;
+import com.github.hlvx.websocket.io.readers.StreamingJsonReader;
+import com.github.hlvx.websocket.models.CommandData;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of incoming frames, up to the command key for lazy readers and up to the command
+ * parameter for eager ones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReaderBenchmark {
+    @Param({"16", "1024"})
+    public int payloadSize;
+
+    private String text;
+    private Buffer json;
+    private Buffer binary;
+    private final JsonReader jsonReader = new JsonReader("type");
+    private final StreamingJsonReader streamingReader = new StreamingJsonReader("type");
+    private final SimpleBinaryReader binaryReader = new SimpleBinaryReader();
+    private final SimpleBinaryReader slicingBinaryReader = new SimpleBinaryReader(true);
+
+    @Setup
+    public void setup() {
+        StringBuilder value = new StringBuilder();
+        while (value.length() < payloadSize) value.append('x');
+        text = new JsonObject().put("type", "echo").put("id", 42).put("value", value.toString()).encode();
+        json = Buffer.buffer(text);
+        binary = Buffer.buffer().appendShort((short) 7).appendBytes(new byte[payloadSize]);
+    }
+
+    @Benchmark
+    public Object jsonReaderBuffer() {
+        return jsonReader.readData(json).getData();
+    }
+
+    @Benchmark
+    public Object streamingReaderCommandOnly() {
+        return streamingReader.readText(text).getCommand();
+    }
+
+    @Benchmark
+    public Object streamingReaderText() {
+        CommandData<JsonPayload, String> data = streamingReader.readText(text);
+        return data.getData().as(JsonObject.class);
+    }
+
+    @Benchmark
+    public Object streamingReaderBuffer() {
+        CommandData<JsonPayload, String> data = streamingReader.readData(json);
+        return data.getData().as(JsonObject.class);
+    }
+
+    @Benchmark
+    public int simpleBinaryReader() {
+        return binaryReader.readData(binary).getCommandId();
+    }
+
+    @Benchmark
+    public Object simpleBinaryReaderSliced() {
+        return slicingBinaryReader.readData(binary).getData();
+    }
+}
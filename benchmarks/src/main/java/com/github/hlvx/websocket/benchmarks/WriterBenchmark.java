@@ -0,0 +1,83 @@
+package com.github.hlvx.websocket.benchmarks;
+
+import com.github.hlvx.websocket.io.writers.JsonWriter;
+import com.github.hlvx.websocket.io.writers.SimpleBinaryWriter;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of responses, into a fresh buffer as before and into a pooled buffer as the server
+ * does now.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WriterBenchmark {
+    @Param({"16", "1024"})
+    public int payloadSize;
+
+    private JsonObject json;
+    private Buffer binary;
+    private final JsonWriter jsonWriter = new JsonWriter();
+    private final SimpleBinaryWriter binaryWriter = new SimpleBinaryWriter();
+
+    @Setup
+    public void setup() {
+        StringBuilder value = new StringBuilder();
+        while (value.length() < payloadSize) value.append('x');
+        json = new JsonObject().put("type", "echo").put("id", 42).put("value", value.toString());
+        binary = Buffer.buffer(new byte[payloadSize]);
+    }
+
+    @Benchmark
+    public Object jsonWriterFreshBuffer() {
+        Buffer out = Buffer.buffer();
+        jsonWriter.writeData(json, out);
+        return out;
+    }
+
+    @Benchmark
+    public int jsonWriterPooledBuffer() {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.heapBuffer(256);
+        try {
+            return jsonWriter.encode(json, Buffer.buffer(buf)).length();
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Benchmark
+    public Object simpleBinaryWriterCopy() {
+        Buffer out = Buffer.buffer();
+        binaryWriter.writeData(binary, out);
+        return out;
+    }
+
+    @Benchmark
+    public int simpleBinaryWriterPooledBuffer() {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.heapBuffer(256);
+        try {
+            return binaryWriter.encode(binary, Buffer.buffer(buf)).length();
+        } finally {
+            buf.release();
+        }
+    }
+}
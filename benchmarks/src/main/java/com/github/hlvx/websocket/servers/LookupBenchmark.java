@@ -0,0 +1,100 @@
+package com.github.hlvx.websocket.servers;
+
+import com.github.hlvx.websocket.models.Command;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command lookup in the frozen tables, against the HashMaps they replaced. Lives in the servers
+ * package because the tables are package-private.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LookupBenchmark {
+    private static final int KEYS = 1024;
+
+    @Param({"8", "128"})
+    public int commands;
+
+    @Param({"true", "false"})
+    public boolean sparse;
+
+    private Map<String, Command> textMap;
+    private Map<Integer, Command> binaryMap;
+    private TextCommandTable textTable;
+    private BinaryCommandTable binaryTable;
+    private String[] names;
+    private int[] ids;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        Command command = new Command(this, LookupBenchmark.class.getMethod("equals", Object.class),
+                Collections.emptySet(), new int[0]);
+        Random random = new Random(42);
+        textMap = new HashMap<>();
+        binaryMap = new HashMap<>();
+        String[] registeredNames = new String[commands];
+        int[] registeredIds = new int[commands];
+        for (int i = 0; i < commands; ++i) {
+            registeredNames[i] = "command" + i;
+            registeredIds[i] = sparse ? random.nextInt(1 << 30) : i;
+            textMap.put(registeredNames[i], command);
+            binaryMap.put(registeredIds[i], command);
+        }
+        textTable = TextCommandTable.of(textMap);
+        binaryTable = BinaryCommandTable.of(binaryMap);
+
+        names = new String[KEYS];
+        ids = new int[KEYS];
+        for (int i = 0; i < KEYS; ++i) {
+            int pick = random.nextInt(commands);
+            // Frames are parsed into fresh strings, whose hash is not cached yet
+            names[i] = new String(registeredNames[pick].toCharArray());
+            ids[i] = registeredIds[pick];
+        }
+    }
+
+    private int next() {
+        return next = (next + 1) & (KEYS - 1);
+    }
+
+    @Benchmark
+    public Object textHashMap() {
+        return textMap.get(new String(names[next()].toCharArray()));
+    }
+
+    @Benchmark
+    public Object textTable() {
+        return textTable.get(new String(names[next()].toCharArray()));
+    }
+
+    @Benchmark
+    public Object binaryHashMap() {
+        return binaryMap.get(ids[next()]);
+    }
+
+    @Benchmark
+    public Object binaryTable() {
+        return binaryTable.get(ids[next()]);
+    }
+}
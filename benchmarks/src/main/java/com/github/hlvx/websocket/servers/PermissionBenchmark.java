@@ -0,0 +1,84 @@
+package com.github.hlvx.websocket.servers;
+
+import com.github.hlvx.websocket.models.WebSocketContext;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.AbstractUser;
+import io.vertx.ext.auth.AuthProvider;
+import io.vertx.ext.auth.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Permission checks of a command, answered by the connection cache or by the user.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PermissionBenchmark {
+    @Param({"1", "4"})
+    public int permissions;
+
+    private Authorizer cached;
+    private Authorizer uncached;
+    private int[] ids;
+    private WebSocketContext connection;
+    private User user;
+
+    @Setup
+    public void setup() {
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < permissions; ++i) names.add("permission" + i);
+        cached = new Authorizer(WebSocketServer.DEFAULT_AUTHORIZATION_CACHE_TTL);
+        uncached = new Authorizer(0);
+        ids = cached.register(names);
+        uncached.register(names);
+        user = new AbstractUser() {
+            @Override
+            protected void doIsPermitted(String permission, Handler<AsyncResult<Boolean>> handler) {
+                handler.handle(Future.succeededFuture(true));
+            }
+
+            @Override
+            public JsonObject principal() {
+                return new JsonObject();
+            }
+
+            @Override
+            public void setAuthProvider(AuthProvider authProvider) {}
+        };
+        connection = new WebSocketContext(null, null);
+        connection.setUser(user);
+        cached.resolve(ids, connection, user, result -> {});
+    }
+
+    @Benchmark
+    public int cachedCheck() {
+        return cached.check(ids, connection);
+    }
+
+    @Benchmark
+    public Object uncachedResolve() {
+        Object[] granted = new Object[1];
+        uncached.resolve(ids, connection, user, result -> granted[0] = result.result());
+        return granted[0];
+    }
+}
@@ -9,4 +9,9 @@ import java.lang.annotation.Target;
 @Target(ElementType.METHOD)
 public @interface BinaryCommand {
     int commandId();
+
+    /**
+     * Initial capacity, in bytes, of the pooled buffer responses are encoded into.
+     */
+    int responseSizeHint() default 256;
 }
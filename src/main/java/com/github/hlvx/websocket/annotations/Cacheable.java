@@ -0,0 +1,35 @@
+package com.github.hlvx.websocket.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the encoded responses of a command, so that requests with the same data are answered
+ * without running the command nor encoding its result again.
+ * <p>
+ * For commands whose result only depends on their data: responses are shared by every connection,
+ * whatever their user. The correlation id of JSON requests is not part of the data, binary readers
+ * should slice the header off the frame for requests with correlation ids to share responses.
+ * Requests are told apart by a {@link com.github.hlvx.websocket.models.Payload#cacheKey()}, or by a
+ * copy of their JSON, buffer, string, number or boolean data. Commands whose reader produces other
+ * types are not cached.
+ * @see com.github.hlvx.websocket.servers.WebSocketServer#invalidateResponseCaches()
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Cacheable {
+    /**
+     * @return how long a response is kept
+     */
+    long ttl();
+
+    TimeUnit unit() default TimeUnit.MILLISECONDS;
+
+    /**
+     * @return how many responses are kept, the least recently used are dropped first
+     */
+    int maxSize() default 1024;
+}
@@ -0,0 +1,35 @@
+package com.github.hlvx.websocket.annotations;
+
+import com.github.hlvx.websocket.servers.OverloadPolicy;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how often each connection can run a command.
+ * On a type, applies to every command of the service that does not declare its own limit, each
+ * command being counted apart.
+ * @see com.github.hlvx.websocket.servers.RateLimitOptions
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface RateLimit {
+    /**
+     * @return how many commands a connection can run per period
+     */
+    int permits();
+
+    long period() default 1;
+
+    TimeUnit unit() default TimeUnit.SECONDS;
+
+    /**
+     * @return how many commands a connection can run at once after being idle, permits if 0
+     */
+    int burst() default 0;
+
+    OverloadPolicy policy() default OverloadPolicy.REJECT;
+}
@@ -0,0 +1,17 @@
+package com.github.hlvx.websocket.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs a blocking command on a named worker pool registered with
+ * {@link com.github.hlvx.websocket.servers.WebSocketServer#addWorkerPool}.
+ * On a type, applies to every command of the service that does not declare its own pool.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface Worker {
+    String pool();
+}
@@ -0,0 +1,7 @@
+package com.github.hlvx.websocket.exceptions;
+
+public class CommandRejectedException extends RuntimeException {
+    public CommandRejectedException(String message) {
+        super(message);
+    }
+}
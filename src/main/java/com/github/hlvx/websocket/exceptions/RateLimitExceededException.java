@@ -0,0 +1,16 @@
+package com.github.hlvx.websocket.exceptions;
+
+/**
+ * A command refused because its connection sent more than its rate limit allows. Thrown for every
+ * refused frame of a flooding client, so it has no stack trace.
+ */
+public class RateLimitExceededException extends CommandRejectedException {
+    public RateLimitExceededException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,12 @@
+package com.github.hlvx.websocket.invokers;
+
+import com.github.hlvx.websocket.models.RequestContext;
+
+/**
+ * Calls a command method with its parameters already resolved from the request.
+ * Instances are built once per command by {@link CommandInvokers} and are stateless.
+ */
+@FunctionalInterface
+public interface CommandInvoker {
+    Object invoke(RequestContext context, Object data) throws Throwable;
+}
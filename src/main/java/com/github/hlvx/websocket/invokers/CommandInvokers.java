@@ -0,0 +1,219 @@
+package com.github.hlvx.websocket.invokers;
+
+import com.github.hlvx.websocket.annotations.Context;
+import com.github.hlvx.websocket.models.Payload;
+import com.github.hlvx.websocket.models.RequestContext;
+import com.github.hlvx.websocket.models.WebSocketContext;
+import io.vertx.ext.auth.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+
+/**
+ * Builds {@link CommandInvoker}s for command methods.
+ * <p>
+ * Public methods of public classes are bound with {@link LambdaMetafactory}, which gives a plain
+ * interface call with no argument array. Methods using primitive types go through an exact
+ * {@link MethodHandle}, and anything that can't be linked falls back to {@link Method#invoke}.
+ * Parameter resolution is decided here, once, so nothing is looked up per message.
+ */
+public final class CommandInvokers {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommandInvokers.class);
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final int MAX_DIRECT_ARITY = 4;
+
+    private CommandInvokers() {}
+
+    public static CommandInvoker create(Object parent, Method method) {
+        Parameter[] parameters = method.getParameters();
+        ParameterResolver[] resolvers = new ParameterResolver[parameters.length];
+        int dataParams = 0;
+        for (int i = 0; i < parameters.length; ++i) {
+            if (parameters[i].isAnnotationPresent(Context.class))
+                resolvers[i] = contextResolver(parameters[i].getType());
+            else {
+                resolvers[i] = dataResolver(parameters[i].getType());
+                ++dataParams;
+            }
+        }
+        if (dataParams != 1)
+            throw new RuntimeException("Invalid number of parameters for method " + method);
+
+        if (parameters.length <= MAX_DIRECT_ARITY) {
+            try {
+                return direct(parent, method, resolvers);
+            } catch (Throwable ex) {
+                LOGGER.debug("Could not build a direct invoker for {}, using reflection", method, ex);
+            }
+        }
+        return reflective(parent, method, resolvers);
+    }
+
+    /**
+     * Lazy payloads are decoded into the declared type, anything else is passed as read.
+     */
+    private static ParameterResolver dataResolver(Class<?> type) {
+        return (context, data) -> data instanceof Payload ? ((Payload) data).as(type) : data;
+    }
+
+    private static ParameterResolver contextResolver(Class<?> type) {
+        if (type == RequestContext.class) return (context, data) -> context;
+        if (type == WebSocketContext.class) return (context, data) -> context.getWebSocketContext();
+        if (User.class.isAssignableFrom(type)) return (context, data) -> {
+            User user = context.getWebSocketContext().getUser();
+            return type.isInstance(user) ? user : null;
+        };
+        return (context, data) -> context.getRegisteredObject(type);
+    }
+
+    private static CommandInvoker direct(Object parent, Method method, ParameterResolver[] resolvers)
+            throws Throwable {
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+        if (!isAccessible(method)) method.setAccessible(true);
+        MethodHandle handle = LOOKUP.unreflect(method);
+
+        if (canUseMetafactory(method)) {
+            try {
+                return bind(metafactory(handle, method, isStatic ? null : parent), resolvers);
+            } catch (Throwable ex) {
+                LOGGER.debug("LambdaMetafactory refused {}, using a method handle", method, ex);
+            }
+        }
+        if (!isStatic) handle = handle.bindTo(parent);
+        return bind(exact(handle.asType(MethodType.genericMethodType(resolvers.length))), resolvers);
+    }
+
+    private static Object metafactory(MethodHandle handle, Method method, Object parent) throws Throwable {
+        Class<?> functionType = functionType(method.getParameterCount());
+        MethodType invokedType = parent == null ? MethodType.methodType(functionType)
+                : MethodType.methodType(functionType, method.getDeclaringClass());
+        CallSite site = LambdaMetafactory.metafactory(LOOKUP, "apply", invokedType,
+                MethodType.genericMethodType(method.getParameterCount()), handle,
+                MethodType.methodType(method.getReturnType(), method.getParameterTypes()));
+        return parent == null ? site.getTarget().invoke() : site.getTarget().invoke(parent);
+    }
+
+    private static Object exact(MethodHandle handle) {
+        switch (handle.type().parameterCount()) {
+            case 0: return (Function0) () -> (Object) handle.invokeExact();
+            case 1: return (Function1) a -> (Object) handle.invokeExact(a);
+            case 2: return (Function2) (a, b) -> (Object) handle.invokeExact(a, b);
+            case 3: return (Function3) (a, b, c) -> (Object) handle.invokeExact(a, b, c);
+            case 4: return (Function4) (a, b, c, d) -> (Object) handle.invokeExact(a, b, c, d);
+            default: throw new IllegalArgumentException("Unsupported arity " + handle.type());
+        }
+    }
+
+    private static CommandInvoker bind(Object function, ParameterResolver[] resolvers) {
+        switch (resolvers.length) {
+            case 0: {
+                Function0 fn = (Function0) function;
+                return (context, data) -> fn.apply();
+            }
+            case 1: {
+                Function1 fn = (Function1) function;
+                ParameterResolver r0 = resolvers[0];
+                return (context, data) -> fn.apply(r0.resolve(context, data));
+            }
+            case 2: {
+                Function2 fn = (Function2) function;
+                ParameterResolver r0 = resolvers[0], r1 = resolvers[1];
+                return (context, data) -> fn.apply(r0.resolve(context, data), r1.resolve(context, data));
+            }
+            case 3: {
+                Function3 fn = (Function3) function;
+                ParameterResolver r0 = resolvers[0], r1 = resolvers[1], r2 = resolvers[2];
+                return (context, data) -> fn.apply(r0.resolve(context, data), r1.resolve(context, data),
+                        r2.resolve(context, data));
+            }
+            case 4: {
+                Function4 fn = (Function4) function;
+                ParameterResolver r0 = resolvers[0], r1 = resolvers[1], r2 = resolvers[2], r3 = resolvers[3];
+                return (context, data) -> fn.apply(r0.resolve(context, data), r1.resolve(context, data),
+                        r2.resolve(context, data), r3.resolve(context, data));
+            }
+            default: throw new IllegalArgumentException("Unsupported arity " + resolvers.length);
+        }
+    }
+
+    private static CommandInvoker reflective(Object parent, Method method, ParameterResolver[] resolvers) {
+        if (!isAccessible(method)) method.setAccessible(true);
+        return (context, data) -> {
+            Object[] params = new Object[resolvers.length];
+            for (int i = 0; i < resolvers.length; ++i) params[i] = resolvers[i].resolve(context, data);
+            try {
+                return method.invoke(parent, params);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        };
+    }
+
+    private static boolean canUseMetafactory(Method method) {
+        if (method.getReturnType().isPrimitive() || !isVisible(method.getReturnType())) return false;
+        for (Class<?> type : method.getParameterTypes())
+            if (type.isPrimitive() || !isVisible(type)) return false;
+        return isVisible(method.getDeclaringClass()) && isAccessible(method);
+    }
+
+    private static boolean isAccessible(Method method) {
+        if (!Modifier.isPublic(method.getModifiers())) return false;
+        for (Class<?> type = method.getDeclaringClass(); type != null; type = type.getEnclosingClass())
+            if (!Modifier.isPublic(type.getModifiers())) return false;
+        return true;
+    }
+
+    /**
+     * Generated lambda classes resolve types through our own class loader, so every type in
+     * the signature has to be reachable from it.
+     */
+    private static boolean isVisible(Class<?> type) {
+        while (type.isArray()) type = type.getComponentType();
+        if (type.isPrimitive()) return true;
+        try {
+            return Class.forName(type.getName(), false, CommandInvokers.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return false;
+        }
+    }
+
+    private static Class<?> functionType(int arity) {
+        switch (arity) {
+            case 0: return Function0.class;
+            case 1: return Function1.class;
+            case 2: return Function2.class;
+            case 3: return Function3.class;
+            case 4: return Function4.class;
+            default: throw new IllegalArgumentException("Unsupported arity " + arity);
+        }
+    }
+
+    interface Function0 {
+        Object apply() throws Throwable;
+    }
+
+    interface Function1 {
+        Object apply(Object a) throws Throwable;
+    }
+
+    interface Function2 {
+        Object apply(Object a, Object b) throws Throwable;
+    }
+
+    interface Function3 {
+        Object apply(Object a, Object b, Object c) throws Throwable;
+    }
+
+    interface Function4 {
+        Object apply(Object a, Object b, Object c, Object d) throws Throwable;
+    }
+}
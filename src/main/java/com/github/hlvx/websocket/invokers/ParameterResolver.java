@@ -0,0 +1,11 @@
+package com.github.hlvx.websocket.invokers;
+
+import com.github.hlvx.websocket.models.RequestContext;
+
+/**
+ * Produces the value of one command method parameter for a given request.
+ */
+@FunctionalInterface
+public interface ParameterResolver {
+    Object resolve(RequestContext context, Object data);
+}
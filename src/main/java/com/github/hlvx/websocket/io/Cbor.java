@@ -0,0 +1,104 @@
+package com.github.hlvx.websocket.io;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The CBOR mapper shared by {@link com.github.hlvx.websocket.io.readers.CborReader} and
+ * {@link com.github.hlvx.websocket.io.writers.CborWriter}, with one reader and one writer per
+ * class so serializers are looked up once rather than per frame.
+ * <p>
+ * {@link JsonObject} and {@link JsonArray} are mapped to CBOR maps and arrays, {@link Buffer} to
+ * byte strings. Needs {@code jackson-dataformat-cbor} on the classpath.
+ */
+public final class Cbor {
+    public static final ObjectMapper MAPPER = new ObjectMapper(new CBORFactory())
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .registerModule(vertxModule());
+
+    private static final ClassValue<ObjectReader> READERS = new ClassValue<ObjectReader>() {
+        @Override
+        protected ObjectReader computeValue(Class<?> type) {
+            return MAPPER.readerFor(type);
+        }
+    };
+
+    private static final ClassValue<ObjectWriter> WRITERS = new ClassValue<ObjectWriter>() {
+        @Override
+        protected ObjectWriter computeValue(Class<?> type) {
+            return MAPPER.writerFor(type);
+        }
+    };
+
+    private Cbor() {}
+
+    public static ObjectReader readerFor(Class<?> type) {
+        return READERS.get(type);
+    }
+
+    public static ObjectWriter writerFor(Class<?> type) {
+        return WRITERS.get(type);
+    }
+
+    private static SimpleModule vertxModule() {
+        SimpleModule module = new SimpleModule();
+        module.addSerializer(JsonObject.class, new JsonSerializer<JsonObject>() {
+            @Override
+            public void serialize(JsonObject value, JsonGenerator gen, SerializerProvider serializers)
+                    throws IOException {
+                gen.writeObject(value.getMap());
+            }
+        });
+        module.addSerializer(JsonArray.class, new JsonSerializer<JsonArray>() {
+            @Override
+            public void serialize(JsonArray value, JsonGenerator gen, SerializerProvider serializers)
+                    throws IOException {
+                gen.writeObject(value.getList());
+            }
+        });
+        module.addSerializer(Buffer.class, new JsonSerializer<Buffer>() {
+            @Override
+            public void serialize(Buffer value, JsonGenerator gen, SerializerProvider serializers)
+                    throws IOException {
+                gen.writeBinary(value.getBytes());
+            }
+        });
+        module.addDeserializer(JsonObject.class, new JsonDeserializer<JsonObject>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public JsonObject deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+                return new JsonObject(ctxt.readValue(p, Map.class));
+            }
+        });
+        module.addDeserializer(JsonArray.class, new JsonDeserializer<JsonArray>() {
+            @Override
+            public JsonArray deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+                return new JsonArray(ctxt.readValue(p, List.class));
+            }
+        });
+        module.addDeserializer(Buffer.class, new JsonDeserializer<Buffer>() {
+            @Override
+            public Buffer deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+                return Buffer.buffer(p.getBinaryValue());
+            }
+        });
+        return module;
+    }
+}
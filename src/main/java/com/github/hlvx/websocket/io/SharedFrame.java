@@ -0,0 +1,96 @@
+package com.github.hlvx.websocket.io;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.http.WebSocketFrame;
+import io.vertx.core.http.impl.FrameType;
+import io.vertx.core.http.impl.ws.WebSocketFrameImpl;
+
+/**
+ * An encoded message that can be written to many sockets without being copied or re-encoded.
+ * <p>
+ * The content is reference counted: the creator holds one reference, each pending write holds
+ * another one that is released when the write completes. Text frames are written from their
+ * UTF-8 bytes, so a String is never encoded more than once either.
+ */
+public class SharedFrame {
+    private final ByteBuf content;
+    private final boolean binary;
+    private final int maxFrameSize;
+    private final Handler<AsyncResult<Void>> releaseHandler;
+
+    /**
+     * @param content      the encoded message, this frame takes ownership of one reference
+     * @param maxFrameSize messages larger than this are split into continuation frames
+     */
+    public SharedFrame(ByteBuf content, boolean binary, int maxFrameSize) {
+        this.content = content;
+        this.binary = binary;
+        this.maxFrameSize = maxFrameSize;
+        releaseHandler = result -> content.release();
+    }
+
+    /**
+     * Wraps a buffer this frame does not own, reference counting is then a no-op.
+     */
+    public static SharedFrame wrap(ByteBuf content, boolean binary, int maxFrameSize) {
+        return new SharedFrame(Unpooled.unreleasableBuffer(content), binary, maxFrameSize);
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    public int length() {
+        return content.readableBytes();
+    }
+
+    /**
+     * @return a view of the encoded message, sharing its memory
+     */
+    public ByteBuf content() {
+        return content.duplicate();
+    }
+
+    public SharedFrame retain() {
+        content.retain();
+        return this;
+    }
+
+    public void release() {
+        content.release();
+    }
+
+    public void writeTo(ServerWebSocket socket) {
+        writeTo(socket, null);
+    }
+
+    /**
+     * @param handler called once the frame has been written, may be null
+     */
+    public void writeTo(ServerWebSocket socket, Handler<AsyncResult<Void>> handler) {
+        content.retain();
+        try {
+            int length = content.readableBytes();
+            int index = content.readerIndex();
+            FrameType type = binary ? FrameType.BINARY : FrameType.TEXT;
+            while (length > maxFrameSize) {
+                socket.writeFrame(new WebSocketFrameImpl(type, content.slice(index, maxFrameSize), false));
+                index += maxFrameSize;
+                length -= maxFrameSize;
+                type = FrameType.CONTINUATION;
+            }
+            WebSocketFrame last = new WebSocketFrameImpl(type, content.slice(index, length), true);
+            socket.writeFrame(last, handler == null ? releaseHandler : result -> {
+                content.release();
+                handler.handle(result);
+            });
+        } catch (RuntimeException ex) {
+            content.release();
+            throw ex;
+        }
+    }
+}
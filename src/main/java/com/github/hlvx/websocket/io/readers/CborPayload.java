@@ -0,0 +1,52 @@
+package com.github.hlvx.websocket.io.readers;
+
+import com.github.hlvx.websocket.io.Cbor;
+import com.github.hlvx.websocket.models.Payload;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A CBOR body that is decoded on first use.
+ * <p>
+ * {@link Buffer} gets the raw body, {@code Object} gets it as a {@link JsonObject}, any other
+ * type is bound with the reader {@link Cbor} holds for it.
+ */
+public class CborPayload implements Payload {
+    private final Buffer buffer;
+    private Object decoded;
+
+    public CborPayload(Buffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public Object cacheKey() {
+        return buffer;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T as(Class<T> type) {
+        if (decoded != null && type.isInstance(decoded)) return (T) decoded;
+        if (type == Buffer.class) return (T) buffer;
+        Class<?> target = type == Object.class ? JsonObject.class : type;
+        Object value;
+        try {
+            ByteBuf byteBuf = buffer.getByteBuf();
+            if (byteBuf.hasArray())
+                value = Cbor.readerFor(target).readValue(byteBuf.array(),
+                        byteBuf.arrayOffset() + byteBuf.readerIndex(), byteBuf.readableBytes());
+            else value = Cbor.readerFor(target).readValue((InputStream) new ByteBufInputStream(byteBuf));
+        } catch (IOException ex) {
+            throw new DecodeException("Failed to decode CBOR: " + ex.getMessage());
+        }
+        decoded = value;
+        return (T) value;
+    }
+}
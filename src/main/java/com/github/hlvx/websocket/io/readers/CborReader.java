@@ -0,0 +1,36 @@
+package com.github.hlvx.websocket.io.readers;
+
+import com.github.hlvx.websocket.io.Cbor;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Reads frames laid out like those of {@link SimpleBinaryReader}, whose body after the header is a
+ * CBOR document. Commands get the body decoded into the type they declare.
+ */
+public class CborReader extends SimpleBinaryReader {
+    public CborReader() {
+        this(false);
+    }
+
+    public CborReader(boolean correlationIds) {
+        this(correlationIds, false);
+    }
+
+    /**
+     * @see SimpleBinaryReader#SimpleBinaryReader(boolean, boolean, boolean)
+     */
+    public CborReader(boolean correlationIds, boolean batches) {
+        super(true, correlationIds, batches);
+    }
+
+    @Override
+    protected Object body(Buffer frame, int headerLength) {
+        return new CborPayload(frame.slice(headerLength, frame.length()));
+    }
+
+    @Override
+    public void prepare(Class<?> type) {
+        if (type != Buffer.class) Cbor.readerFor(type == Object.class ? JsonObject.class : type);
+    }
+}
@@ -0,0 +1,150 @@
+package com.github.hlvx.websocket.io.readers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.hlvx.websocket.models.Payload;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A JSON frame that is parsed on first use.
+ * <p>
+ * {@link JsonObject} and {@code Object} get the whole frame as a {@link JsonObject},
+ * {@link Buffer} and {@link String} get the raw frame, any other type is bound with Jackson,
+ * ignoring properties it does not declare such as the command key.
+ */
+public class JsonPayload implements Payload {
+    private static final ClassValue<ObjectReader> READERS = new ClassValue<ObjectReader>() {
+        @Override
+        protected ObjectReader computeValue(Class<?> type) {
+            return Json.mapper.readerFor(type).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        }
+    };
+
+    private final String text;
+    private final Buffer buffer;
+    private final String correlationKey;
+    private Object decoded;
+
+    public JsonPayload(String text) {
+        this(text, null, null);
+    }
+
+    public JsonPayload(Buffer buffer) {
+        this(null, buffer, null);
+    }
+
+    /**
+     * @param correlationKey the top level field holding the correlation id, left out of the
+     *                       {@link #cacheKey()}. May be null.
+     */
+    JsonPayload(String text, Buffer buffer, String correlationKey) {
+        this.text = text;
+        this.buffer = buffer;
+        this.correlationKey = correlationKey;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T as(Class<T> type) {
+        if (decoded != null && type.isInstance(decoded)) return (T) decoded;
+        Object value;
+        if (type == JsonObject.class || type == Object.class)
+            value = text != null ? new JsonObject(text) : new JsonObject(buffer);
+        else if (type == Buffer.class) value = buffer != null ? buffer : Buffer.buffer(text);
+        else if (type == String.class) value = text != null ? text : buffer.toString();
+        else if (type == JsonArray.class) value = text != null ? new JsonArray(text) : new JsonArray(buffer);
+        else {
+            try (JsonParser parser = createParser(Json.mapper.getFactory())) {
+                value = READERS.get(type).readValue(parser);
+            } catch (IOException ex) {
+                throw new DecodeException("Failed to decode: " + ex.getMessage());
+            }
+        }
+        decoded = value;
+        return (T) value;
+    }
+
+    /**
+     * The frame without the value of its correlation id, so that requests differing only by their
+     * id share their responses.
+     */
+    @Override
+    public Object cacheKey() {
+        Object frame = text != null ? text : buffer;
+        if (correlationKey == null) return frame;
+        try (JsonParser parser = createParser(Json.mapper.getFactory())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) return frame;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                boolean correlation = correlationKey.equals(parser.getCurrentName());
+                JsonToken value = parser.nextToken();
+                if (correlation && value.isScalarValue()) {
+                    int start = offset(parser.getTokenLocation());
+                    // Strings are only read up to their end on demand
+                    parser.getText();
+                    int end = offset(parser.getCurrentLocation());
+                    if (text != null) return text.substring(0, start) + text.substring(end);
+                    return Buffer.buffer(buffer.length() - end + start).appendBuffer(buffer, 0, start)
+                            .appendBuffer(buffer, end, buffer.length() - end);
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException ex) {
+            throw new DecodeException("Failed to decode: " + ex.getMessage());
+        }
+        return frame;
+    }
+
+    /**
+     * Parsers over text only count characters, parsers over bytes only count bytes.
+     */
+    static int offset(JsonLocation location) {
+        return (int) (location.getByteOffset() >= 0 ? location.getByteOffset() : location.getCharOffset());
+    }
+
+    /**
+     * Builds the Jackson reader of type if it is bound with one.
+     */
+    static void prepare(Class<?> type) {
+        if (type != JsonObject.class && type != Object.class && type != Buffer.class && type != String.class
+                && type != JsonArray.class) READERS.get(type);
+    }
+
+    /**
+     * @return the part of the frame between start and end, in characters for text frames and in
+     * bytes otherwise
+     */
+    JsonPayload slice(int start, int end) {
+        return text != null ? new JsonPayload(text.substring(start, end), null, correlationKey)
+                : new JsonPayload(null, buffer.slice(start, end), correlationKey);
+    }
+
+    String getText() {
+        return text;
+    }
+
+    Buffer getBuffer() {
+        return buffer;
+    }
+
+    JsonParser createParser(JsonFactory factory) throws IOException {
+        if (text != null) return factory.createParser(text);
+        ByteBuf byteBuf = buffer.getByteBuf();
+        if (byteBuf.hasArray())
+            return factory.createParser(byteBuf.array(), byteBuf.arrayOffset() + byteBuf.readerIndex(),
+                    byteBuf.readableBytes());
+        return factory.createParser((InputStream) new ByteBufInputStream(byteBuf));
+    }
+}
@@ -5,4 +5,19 @@ import io.vertx.core.buffer.Buffer;
 
 public interface Reader<T> {
     CommandData readData(Buffer data);
+
+    /**
+     * Reads a text frame. Readers able to parse a String directly should override this to avoid
+     * copying the frame into a Buffer first.
+     */
+    default CommandData readText(String text) {
+        return readData(Buffer.buffer(text));
+    }
+
+    /**
+     * Called when a command taking type is registered, so that readers binding data to types can
+     * build their codec before the first frame.
+     */
+    default void prepare(Class<?> type) {
+    }
 }
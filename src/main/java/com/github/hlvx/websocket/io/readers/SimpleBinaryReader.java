@@ -1,11 +1,92 @@
 package com.github.hlvx.websocket.io.readers;
 
+import com.github.hlvx.websocket.models.CommandBatch;
 import com.github.hlvx.websocket.models.CommandData;
 import io.vertx.core.buffer.Buffer;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads frames starting with a 2 bytes unsigned command id, optionally followed by a 4 bytes
+ * correlation id.
+ * <p>
+ * When batches are enabled, frames starting with {@link #BATCH_COMMAND_ID} hold several commands:
+ * a 2 bytes count, then for each command its 4 bytes length followed by the command as it would
+ * be sent in a frame of its own.
+ */
 public class SimpleBinaryReader implements Reader<Buffer> {
+    public static final int HEADER_LENGTH = 2;
+    public static final int CORRELATION_ID_LENGTH = 4;
+    public static final int BATCH_COMMAND_ID = 0xFFFF;
+
+    private final boolean sliceHeader;
+    private final boolean correlationIds;
+    private final boolean batches;
+
+    public SimpleBinaryReader() {
+        this(false);
+    }
+
+    /**
+     * @param sliceHeader if true, commands receive a slice of the frame that starts after the
+     *                    command id instead of the whole frame. The slice shares the frame memory.
+     */
+    public SimpleBinaryReader(boolean sliceHeader) {
+        this(sliceHeader, false);
+    }
+
+    /**
+     * @param correlationIds if true, the command id is followed by the int correlation id of the
+     *                       request, echoed back by a {@link com.github.hlvx.websocket.io.writers.SimpleBinaryWriter}
+     *                       built with correlation ids
+     */
+    public SimpleBinaryReader(boolean sliceHeader, boolean correlationIds) {
+        this(sliceHeader, correlationIds, false);
+    }
+
+    /**
+     * @param batches if true, {@link #BATCH_COMMAND_ID} is reserved for batch frames
+     */
+    public SimpleBinaryReader(boolean sliceHeader, boolean correlationIds, boolean batches) {
+        this.sliceHeader = sliceHeader;
+        this.correlationIds = correlationIds;
+        this.batches = batches;
+    }
+
     @Override
-    public CommandData<Short, Buffer> readData(Buffer data) {
-        return new CommandData(data.getShort(0), data);
+    public CommandData readData(Buffer data) {
+        if (batches && data.getUnsignedShort(0) == BATCH_COMMAND_ID) return readBatch(data);
+        return readCommand(data);
+    }
+
+    private CommandBatch readBatch(Buffer data) {
+        int count = data.getUnsignedShort(HEADER_LENGTH);
+        List<CommandData> commands = new ArrayList<>(count);
+        List<Buffer> frames = new ArrayList<>(count);
+        int position = HEADER_LENGTH + 2;
+        for (int i = 0; i < count; ++i) {
+            int length = data.getInt(position);
+            position += 4;
+            Buffer frame = data.slice(position, position + length);
+            position += length;
+            commands.add(readCommand(frame));
+            frames.add(frame);
+        }
+        return new CommandBatch(commands, frames);
+    }
+
+    private CommandData<Object, Integer> readCommand(Buffer data) {
+        if (!correlationIds) return new CommandData<>(data.getUnsignedShort(0), body(data, HEADER_LENGTH));
+        Object correlationId = data.getInt(HEADER_LENGTH);
+        return new CommandData<>(data.getUnsignedShort(0), body(data, HEADER_LENGTH + CORRELATION_ID_LENGTH),
+                correlationId);
+    }
+
+    /**
+     * @return the data commands receive, the frame or the part of it after the header
+     */
+    protected Object body(Buffer frame, int headerLength) {
+        return sliceHeader ? frame.slice(headerLength, frame.length()) : frame;
     }
 }
@@ -0,0 +1,107 @@
+package com.github.hlvx.websocket.io.readers;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.hlvx.websocket.models.CommandBatch;
+import com.github.hlvx.websocket.models.CommandData;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the command key of a JSON frame with a streaming scan of the top level fields, stopping
+ * as soon as the key is found. The rest of the frame is left as a {@link JsonPayload}, decoded
+ * only if the command gets to run.
+ * <p>
+ * A frame holding an array of objects is read as a {@link CommandBatch}, each object being a
+ * command of its own.
+ */
+public class StreamingJsonReader implements Reader<String> {
+    private final String commandKey;
+    private final String correlationKey;
+
+    public StreamingJsonReader(String commandKey) {
+        this(commandKey, null);
+    }
+
+    /**
+     * @param correlationKey the top level field holding the correlation id of requests, a string
+     *                       or a number. The scan then stops once both keys are found.
+     */
+    public StreamingJsonReader(String commandKey, String correlationKey) {
+        this.commandKey = commandKey;
+        this.correlationKey = correlationKey;
+    }
+
+    @Override
+    public CommandData readData(Buffer data) {
+        return read(new JsonPayload(null, data, correlationKey));
+    }
+
+    @Override
+    public CommandData readText(String text) {
+        return read(new JsonPayload(text, null, correlationKey));
+    }
+
+    @Override
+    public void prepare(Class<?> type) {
+        JsonPayload.prepare(type);
+    }
+
+    private CommandData read(JsonPayload payload) {
+        try (JsonParser parser = payload.createParser(Json.mapper.getFactory())) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) return readBatch(parser, payload);
+            if (token != JsonToken.START_OBJECT)
+                throw new DecodeException("Expected a JSON object");
+            return scan(parser, payload, false);
+        } catch (IOException ex) {
+            throw new DecodeException("Failed to decode: " + ex.getMessage());
+        }
+    }
+
+    private CommandBatch readBatch(JsonParser parser, JsonPayload payload) throws IOException {
+        List<CommandData> commands = new ArrayList<>();
+        List<Object> frames = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+            int start = JsonPayload.offset(parser.getTokenLocation());
+            CommandData<JsonPayload, String> command = scan(parser, null, true);
+            JsonPayload element = payload.slice(start, JsonPayload.offset(parser.getCurrentLocation()));
+            commands.add(new CommandData<>(command.getCommand(), element, command.getCorrelationId()));
+            frames.add(element.getText() != null ? element.getText() : element.getBuffer());
+        }
+        if (token != JsonToken.END_ARRAY)
+            throw new DecodeException("Expected an array of JSON objects");
+        return new CommandBatch(commands, frames);
+    }
+
+    /**
+     * Reads the fields of the current object up to the command and correlation keys, or up to its
+     * end if wholeObject is true.
+     */
+    private CommandData<JsonPayload, String> scan(JsonParser parser, JsonPayload payload, boolean wholeObject)
+            throws IOException {
+        String command = null;
+        Object correlationId = null;
+        boolean commandFound = false, correlationFound = correlationKey == null;
+        while ((wholeObject || !(commandFound && correlationFound)) && parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (!commandFound && commandKey.equals(name)) {
+                commandFound = true;
+                command = value.isScalarValue() ? parser.getValueAsString() : null;
+            } else if (!correlationFound && correlationKey.equals(name)) {
+                correlationFound = true;
+                if (value == JsonToken.VALUE_NUMBER_INT) correlationId = parser.getLongValue();
+                else if (value == JsonToken.VALUE_STRING) correlationId = parser.getText();
+            }
+            parser.skipChildren();
+        }
+        return new CommandData<>(command, payload, correlationId);
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.hlvx.websocket.io.writers;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.io.OutputStream;
+
+/**
+ * Appends everything written to a {@link Buffer}.
+ */
+public class BufferOutputStream extends OutputStream {
+    private final Buffer buffer;
+
+    public BufferOutputStream(Buffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int b) {
+        buffer.appendByte((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        buffer.appendBytes(b, off, len);
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.hlvx.websocket.io.writers;
+
+import com.github.hlvx.websocket.io.Cbor;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.EncodeException;
+
+import java.io.IOException;
+
+/**
+ * Encodes responses as CBOR documents, framed like those of {@link SimpleBinaryWriter}.
+ */
+public class CborWriter extends SimpleBinaryWriter {
+    public CborWriter() {
+        this(false);
+    }
+
+    /**
+     * @see SimpleBinaryWriter#SimpleBinaryWriter(boolean)
+     */
+    public CborWriter(boolean correlationIds) {
+        super(correlationIds);
+    }
+
+    @Override
+    public void writeData(Object data, Buffer out) {
+        encode(data, out);
+    }
+
+    @Override
+    public Buffer encode(Object data, Buffer out) {
+        try {
+            Cbor.writerFor(data != null ? data.getClass() : Object.class).writeValue(new BufferOutputStream(out), data);
+        } catch (IOException ex) {
+            throw new EncodeException("Failed to encode as CBOR: " + ex.getMessage());
+        }
+        return out;
+    }
+
+    @Override
+    public void prepare(Class<?> type) {
+        Cbor.writerFor(type);
+    }
+}
@@ -1,11 +1,92 @@
 package com.github.hlvx.websocket.io.writers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.EncodeException;
 import io.vertx.core.json.Json;
 
+import java.io.IOException;
+import java.util.List;
+
 public class JsonWriter implements Writer {
+    private final String correlationKey;
+    private final String dataKey;
+
+    public JsonWriter() {
+        this(null, null);
+    }
+
+    /**
+     * Responses to requests with a correlation id are wrapped in an object holding the id under
+     * correlationKey and the response under dataKey.
+     */
+    public JsonWriter(String correlationKey, String dataKey) {
+        this.correlationKey = correlationKey;
+        this.dataKey = dataKey;
+    }
+
     @Override
     public void writeData(Object data, Buffer out) {
         out.setBuffer(0, Json.encodeToBuffer(data));
     }
+
+    /**
+     * Streams the JSON straight into out, skipping the intermediate String and byte array
+     * {@link Json#encodeToBuffer} goes through.
+     */
+    @Override
+    public Buffer encode(Object data, Buffer out) {
+        try {
+            Json.mapper.writeValue(new BufferOutputStream(out), data);
+        } catch (IOException ex) {
+            throw new EncodeException("Failed to encode as JSON: " + ex.getMessage());
+        }
+        return out;
+    }
+
+    /**
+     * Responses to a batch are sent as a JSON array.
+     */
+    @Override
+    public Buffer encodeBatch(List<Buffer> responses, Buffer out) {
+        out.appendByte((byte) '[');
+        for (int i = 0; i < responses.size(); ++i) {
+            if (i > 0) out.appendByte((byte) ',');
+            out.appendBuffer(responses.get(i));
+        }
+        return out.appendByte((byte) ']');
+    }
+
+    @Override
+    public Buffer encode(Object data, Object correlationId, Buffer out) {
+        if (correlationId == null || correlationKey == null) return encode(data, out);
+        try (JsonGenerator generator = Json.mapper.getFactory().createGenerator(new BufferOutputStream(out))) {
+            generator.writeStartObject();
+            generator.writeObjectField(correlationKey, correlationId);
+            generator.writeFieldName(dataKey);
+            Json.mapper.writeValue(generator, data);
+            generator.writeEndObject();
+        } catch (IOException ex) {
+            throw new EncodeException("Failed to encode as JSON: " + ex.getMessage());
+        }
+        return out;
+    }
+
+    @Override
+    public Buffer encodeEncoded(Buffer encoded, Object correlationId, Buffer out) {
+        if (correlationId == null || correlationKey == null) return encoded;
+        try (JsonGenerator generator = Json.mapper.getFactory().createGenerator(new BufferOutputStream(out))) {
+            generator.writeStartObject();
+            generator.writeObjectField(correlationKey, correlationId);
+            generator.writeFieldName(dataKey);
+            // Writes the separator, the value is appended to out once the generator is flushed
+            generator.writeRawValue("");
+            generator.flush();
+            out.appendBuffer(encoded);
+            generator.writeEndObject();
+        } catch (IOException ex) {
+            throw new EncodeException("Failed to encode as JSON: " + ex.getMessage());
+        }
+        return out;
+    }
 }
@@ -1,11 +1,59 @@
 package com.github.hlvx.websocket.io.writers;
 
+import com.github.hlvx.websocket.io.readers.SimpleBinaryReader;
 import io.vertx.core.buffer.Buffer;
 
+import java.util.List;
+
 public class SimpleBinaryWriter implements Writer {
+    private final boolean correlationIds;
+
+    public SimpleBinaryWriter() {
+        this(false);
+    }
+
+    /**
+     * @param correlationIds if true, responses to requests with a correlation id start with the
+     *                       int id, as read by a {@link com.github.hlvx.websocket.io.readers.SimpleBinaryReader}
+     *                       built with correlation ids
+     */
+    public SimpleBinaryWriter(boolean correlationIds) {
+        this.correlationIds = correlationIds;
+    }
+
     @Override
     public void writeData(Object data, Buffer out) {
         if (data instanceof Buffer) out.setBuffer(0, (Buffer) data);
         else throw new RuntimeException("SimpleBinaryWriter only supports Buffer");
     }
+
+    @Override
+    public Buffer encode(Object data, Buffer out) {
+        if (data instanceof Buffer) return (Buffer) data;
+        else throw new RuntimeException("SimpleBinaryWriter only supports Buffer");
+    }
+
+    /**
+     * Responses to a batch are framed like batch requests, see {@link SimpleBinaryReader}.
+     */
+    @Override
+    public Buffer encodeBatch(List<Buffer> responses, Buffer out) {
+        out.appendUnsignedShort(SimpleBinaryReader.BATCH_COMMAND_ID).appendUnsignedShort(responses.size());
+        for (Buffer response : responses) out.appendInt(response.length()).appendBuffer(response);
+        return out;
+    }
+
+    @Override
+    public Buffer encode(Object data, Object correlationId, Buffer out) {
+        if (!correlationIds || !(correlationId instanceof Number)) return encode(data, out);
+        out.appendInt(((Number) correlationId).intValue());
+        Buffer encoded = encode(data, out);
+        return encoded == out ? out : out.appendBuffer(encoded);
+    }
+
+    @Override
+    public Buffer encodeEncoded(Buffer encoded, Object correlationId, Buffer out) {
+        if (!correlationIds || !(correlationId instanceof Number)) return encoded;
+        return out.appendInt(((Number) correlationId).intValue()).appendBuffer(encoded);
+    }
 }
@@ -2,6 +2,54 @@ package com.github.hlvx.websocket.io.writers;
 
 import io.vertx.core.buffer.Buffer;
 
+import java.util.List;
+
 public interface Writer {
     void writeData(Object data, Buffer out);
+
+    /**
+     * Encodes data into the buffer that will be sent. Writers that already hold the encoded bytes
+     * may return them instead of copying them into out.
+     * @return the buffer to send, out or a buffer owned by the writer
+     */
+    default Buffer encode(Object data, Buffer out) {
+        writeData(data, out);
+        return out;
+    }
+
+    /**
+     * Encodes the response to a request the client gave a correlation id. Writers that can echo
+     * the id override this, the default ignores it.
+     * @param correlationId the id read from the request, null if it had none
+     */
+    default Buffer encode(Object data, Object correlationId, Buffer out) {
+        return encode(data, out);
+    }
+
+    /**
+     * Encodes the response to a request from data already encoded by {@link #encode(Object, Buffer)},
+     * such as a cached response, without encoding the data again. The default ignores the
+     * correlation id, like {@link #encode(Object, Object, Buffer)}.
+     * @param encoded shared by other responses, must not be modified
+     * @return the buffer to send, out or encoded
+     */
+    default Buffer encodeEncoded(Buffer encoded, Object correlationId, Buffer out) {
+        return encoded;
+    }
+
+    /**
+     * Joins the encoded responses to the commands of a batch frame into one frame.
+     * @return out, or null if the writer has no batch format and responses are to be sent one
+     * frame each
+     */
+    default Buffer encodeBatch(List<Buffer> responses, Buffer out) {
+        return null;
+    }
+
+    /**
+     * Called when a command responding with type is registered, so that writers can build their
+     * codec before the first response.
+     */
+    default void prepare(Class<?> type) {
+    }
 }
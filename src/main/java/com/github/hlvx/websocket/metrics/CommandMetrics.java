@@ -0,0 +1,39 @@
+package com.github.hlvx.websocket.metrics;
+
+/**
+ * Measurements of one command. Durations are in nanoseconds.
+ */
+public interface CommandMetrics {
+    CommandMetrics NOOP = new CommandMetrics() {};
+
+    /**
+     * @param size the length of the frame, in bytes for binary frames and in characters for text
+     *             frames
+     */
+    default void received(int size) {}
+
+    /**
+     * Time spent reading the frame up to the command. Payloads decoded lazily are decoded during
+     * the execution.
+     */
+    default void decoded(long nanos) {}
+
+    /**
+     * Time spent checking the permissions of the user, including the calls to the user when the
+     * answers were not cached.
+     */
+    default void authorized(long nanos) {}
+
+    /**
+     * Time spent running the command, up to the completion of its future for asynchronous
+     * commands. Does not include the time blocking commands waited for a worker.
+     */
+    default void executed(long nanos) {}
+
+    /**
+     * @param bytes the length of the encoded response
+     */
+    default void encoded(long nanos, int bytes) {}
+
+    default void failed(Throwable cause) {}
+}
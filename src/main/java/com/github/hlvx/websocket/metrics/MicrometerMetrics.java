@@ -0,0 +1,148 @@
+package com.github.hlvx.websocket.metrics;
+
+import com.github.hlvx.websocket.models.WebSocketContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * Records the measurements of a server into a Micrometer {@link MeterRegistry}.
+ * <p>
+ * Phases are timers named {@code hlvx.websocket.command.duration} tagged with the command and
+ * the phase, publishing a percentile histogram. Micrometer records them into lock-free
+ * HdrHistogram recorders and counts with {@link java.util.concurrent.atomic.LongAdder}s, so event
+ * loops never contend with each other. Requires micrometer-core on the classpath.
+ */
+public class MicrometerMetrics implements WebSocketMetrics {
+    public static final String PREFIX = "hlvx.websocket.";
+
+    private final MeterRegistry registry;
+    private final Map<String, AtomicInteger> connectionsPerEventLoop = new ConcurrentHashMap<>();
+
+    public MicrometerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public CommandMetrics command(String name, boolean binary) {
+        return new MicrometerCommandMetrics(registry, Tags.of("command", name, "type", binary ? "binary" : "text"));
+    }
+
+    @Override
+    public void activeConnections(IntSupplier activeConnections) {
+        // The supplier is usually a lambda only the gauge refers to
+        Gauge.builder(PREFIX + "connections", activeConnections, IntSupplier::getAsInt)
+                .description("Open connections")
+                .strongReference(true)
+                .register(registry);
+    }
+
+    @Override
+    public void connected(WebSocketContext connection) {
+        eventLoopConnections().incrementAndGet();
+    }
+
+    @Override
+    public void disconnected(WebSocketContext connection) {
+        eventLoopConnections().decrementAndGet();
+    }
+
+    /**
+     * Connections are opened and closed on the event loop they belong to.
+     */
+    private AtomicInteger eventLoopConnections() {
+        String eventLoop = Thread.currentThread().getName();
+        AtomicInteger connections = connectionsPerEventLoop.get(eventLoop);
+        if (connections != null) return connections;
+        return connectionsPerEventLoop.computeIfAbsent(eventLoop, name -> {
+            AtomicInteger count = new AtomicInteger();
+            Gauge.builder(PREFIX + "event.loop.connections", count, AtomicInteger::get)
+                    .description("Open connections of an event loop")
+                    .tag("event.loop", name)
+                    .register(registry);
+            return count;
+        });
+    }
+
+    @Override
+    public void messageFailed(boolean binary, Throwable cause) {
+        registry.counter(PREFIX + "message.errors", "type", binary ? "binary" : "text",
+                "exception", cause.getClass().getSimpleName()).increment();
+    }
+
+    private static class MicrometerCommandMetrics implements CommandMetrics {
+        private final MeterRegistry registry;
+        private final Tags tags;
+        private final Counter messages;
+        private final DistributionSummary receivedSize;
+        private final DistributionSummary sentBytes;
+        private final Timer decode;
+        private final Timer auth;
+        private final Timer execute;
+        private final Timer encode;
+
+        MicrometerCommandMetrics(MeterRegistry registry, Tags tags) {
+            this.registry = registry;
+            this.tags = tags;
+            messages = Counter.builder(PREFIX + "command.messages").tags(tags).register(registry);
+            receivedSize = DistributionSummary.builder(PREFIX + "command.received.size").tags(tags)
+                    .register(registry);
+            sentBytes = DistributionSummary.builder(PREFIX + "command.sent.bytes").baseUnit("bytes").tags(tags)
+                    .register(registry);
+            decode = timer(registry, tags, "decode");
+            auth = timer(registry, tags, "auth");
+            execute = timer(registry, tags, "execute");
+            encode = timer(registry, tags, "encode");
+        }
+
+        private static Timer timer(MeterRegistry registry, Tags tags, String phase) {
+            return Timer.builder(PREFIX + "command.duration")
+                    .tags(tags)
+                    .tag("phase", phase)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        @Override
+        public void received(int size) {
+            messages.increment();
+            receivedSize.record(size);
+        }
+
+        @Override
+        public void decoded(long nanos) {
+            decode.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void authorized(long nanos) {
+            auth.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void executed(long nanos) {
+            execute.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void encoded(long nanos, int bytes) {
+            encode.record(nanos, TimeUnit.NANOSECONDS);
+            sentBytes.record(bytes);
+        }
+
+        @Override
+        public void failed(Throwable cause) {
+            registry.counter(PREFIX + "command.errors",
+                    tags.and("exception", cause.getClass().getSimpleName())).increment();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.hlvx.websocket.metrics;
+
+import com.github.hlvx.websocket.models.WebSocketContext;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Receives the measurements of a {@link com.github.hlvx.websocket.servers.WebSocketServer}.
+ * <p>
+ * Per command measurements go through the {@link CommandMetrics} handle returned by
+ * {@link #command}, which is resolved once when the command is registered so that nothing is
+ * looked up per message. Methods are called from event loops and worker threads concurrently
+ * and should not block.
+ */
+public interface WebSocketMetrics {
+    WebSocketMetrics NOOP = new WebSocketMetrics() {};
+
+    /**
+     * @param name   the name of a text command, or the id of a binary command
+     * @param binary true for binary commands
+     * @return the handle the measurements of that command are recorded into
+     */
+    default CommandMetrics command(String name, boolean binary) {
+        return CommandMetrics.NOOP;
+    }
+
+    /**
+     * Called once when the metrics are set on a server.
+     * @param activeConnections the number of connections currently open on the server
+     */
+    default void activeConnections(IntSupplier activeConnections) {}
+
+    /**
+     * Called on the event loop of the connection once it is accepted.
+     */
+    default void connected(WebSocketContext connection) {}
+
+    /**
+     * Called on the event loop of the connection once it is closed.
+     */
+    default void disconnected(WebSocketContext connection) {}
+
+    /**
+     * A message could not be matched to a command, because it could not be read or because its
+     * command is not registered.
+     */
+    default void messageFailed(boolean binary, Throwable cause) {}
+}
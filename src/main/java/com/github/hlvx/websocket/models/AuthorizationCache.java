@@ -0,0 +1,61 @@
+package com.github.hlvx.websocket.models;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Authorization results of one connection, indexed by the permission ids the server assigns when
+ * services are registered. Each entry packs the expiry time and the result in a single long,
+ * so reading it allocates nothing.
+ * <p>
+ * Answers are asked asynchronously, so each invalidation starts a new generation: an answer
+ * asked during a previous generation, for a previous user, is not cached.
+ */
+public class AuthorizationCache {
+    private volatile AtomicLongArray entries;
+    private volatile int generation;
+
+    public AuthorizationCache(int size) {
+        entries = new AtomicLongArray(Math.max(size, 1));
+    }
+
+    /**
+     * @return 1 if granted, 0 if denied, -1 if unknown or expired
+     */
+    public int get(int permissionId, long now) {
+        AtomicLongArray entries = this.entries;
+        if (permissionId >= entries.length()) return -1;
+        long entry = entries.get(permissionId);
+        if (entry == 0 || (entry >>> 1) <= now) return -1;
+        return (int) (entry & 1);
+    }
+
+    /**
+     * @return the generation to give {@link #put}, read before asking for the answer
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Caches an answer unless the cache was invalidated since generation was read. Under the lock
+     * of the cache, so that the answer is not written to entries being replaced.
+     */
+    public synchronized void put(int permissionId, boolean granted, long expiresAt, int generation) {
+        if (generation != this.generation) return;
+        if (permissionId >= entries.length()) grow(permissionId + 1);
+        entries.set(permissionId, expiresAt << 1 | (granted ? 1 : 0));
+    }
+
+    public synchronized void invalidate() {
+        ++generation;
+        entries = new AtomicLongArray(entries.length());
+    }
+
+    private synchronized AtomicLongArray grow(int size) {
+        if (size <= entries.length()) return entries;
+        AtomicLongArray grown = new AtomicLongArray(Math.max(size, entries.length() * 2));
+        for (int i = 0; i < entries.length(); ++i) grown.set(i, entries.get(i));
+        entries = grown;
+        return grown;
+    }
+}
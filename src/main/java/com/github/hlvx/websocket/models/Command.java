@@ -1,59 +1,153 @@
 package com.github.hlvx.websocket.models;
 
+import com.github.hlvx.websocket.annotations.BinaryCommand;
+import com.github.hlvx.websocket.annotations.Cacheable;
 import com.github.hlvx.websocket.annotations.Context;
+import com.github.hlvx.websocket.annotations.Worker;
+import com.github.hlvx.websocket.invokers.CommandInvoker;
+import com.github.hlvx.websocket.invokers.CommandInvokers;
+import com.github.hlvx.websocket.metrics.CommandMetrics;
+
+import io.vertx.core.Future;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.Set;
 
 public class Command {
+    public static final int DEFAULT_RESPONSE_SIZE_HINT = 256;
+
     private final Object parent;
     private final Method method;
     private final Set<String> permissions;
+    private final int[] permissionIds;
     private final Class<?> returnType;
-    private final Map<Integer, Class<?>> contextParams = new HashMap<>();
-    private final int paramsCount;
+    private final Class<?> dataType;
+    private final Class<?> responseType;
+    private final CommandInvoker invoker;
+    private final String workerPool;
+    private final int responseSizeHint;
+    private final ResponseCache responseCache;
+    private CommandMetrics metrics = CommandMetrics.NOOP;
+    private RateLimiter rateLimiter;
 
-    public Command(Object parent, Method method, Set<String> permissions) {
+    /**
+     * @param permissions   the permissions of the command and of its service
+     * @param permissionIds the ids the server assigned to those permissions
+     */
+    public Command(Object parent, Method method, Set<String> permissions, int[] permissionIds) {
         this.parent = parent;
         this.method = method;
         this.permissions = permissions;
+        this.permissionIds = permissionIds;
         returnType = method.getReturnType();
-
-        paramsCount = method.getParameters().length;
-        for (int i = 0; i < paramsCount; ++i) {
-            Parameter param = method.getParameters()[i];
-            if (param.isAnnotationPresent(Context.class))
-                contextParams.put(i, param.getType());
-        }
+        dataType = dataTypeOf(method);
+        responseType = responseTypeOf(method);
+        invoker = CommandInvokers.create(parent, method);
+        Worker worker = method.getAnnotation(Worker.class);
+        if (worker == null) worker = parent.getClass().getAnnotation(Worker.class);
+        workerPool = worker != null ? worker.pool() : null;
+        BinaryCommand binaryCommand = method.getAnnotation(BinaryCommand.class);
+        responseSizeHint = binaryCommand != null ? binaryCommand.responseSizeHint() : DEFAULT_RESPONSE_SIZE_HINT;
+        Cacheable cacheable = method.getAnnotation(Cacheable.class);
+        responseCache = cacheable != null
+                ? new ResponseCache(cacheable.maxSize(), cacheable.unit().toNanos(cacheable.ttl())) : null;
     }
 
     public Class<?> getReturnType() {
         return returnType;
     }
 
+    /**
+     * @return the type of the parameter receiving the data of the frame
+     */
+    public Class<?> getDataType() {
+        return dataType;
+    }
+
+    /**
+     * @return the type of the responses, the result type of a {@link Future}, Object if unknown,
+     * null if the command returns nothing
+     */
+    public Class<?> getResponseType() {
+        return responseType;
+    }
+
     public Object getParent() {
         return parent;
     }
 
+    public Method getMethod() {
+        return method;
+    }
+
     public Set<String> getPermissions() {
         return permissions;
     }
 
-    public Object invoke(RequestContext context, Object[] args)
-            throws InvocationTargetException, IllegalAccessException {
-        if (args.length + contextParams.size() != paramsCount)
-            throw new RuntimeException("Invalid number of parameters for method " + method);
-        Object[] params = new Object[paramsCount];
-        int j = 0;
-        for (int i = 0; i < paramsCount; ++i) {
-            Class<?> contextParam = this.contextParams.get(i);
-            if (contextParam != null) params[i] = context.getRegisteredObject(contextParam);
-            else params[i] = args[j++];
-        }
-        return method.invoke(parent, params);
+    public int[] getPermissionIds() {
+        return permissionIds;
+    }
+
+    /**
+     * @return the name of the worker pool blocking invocations run on, or null for the default one
+     */
+    public String getWorkerPool() {
+        return workerPool;
+    }
+
+    /**
+     * @return the initial capacity of the buffer responses of this command are encoded into
+     */
+    public int getResponseSizeHint() {
+        return responseSizeHint;
+    }
+
+    public CommandMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(CommandMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the encoded responses of the command, null if it is not {@link Cacheable}
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * @return the limit of the command per connection, null if unlimited
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public Object invoke(RequestContext context, Object data) throws Throwable {
+        return invoker.invoke(context, data);
+    }
+
+    private static Class<?> dataTypeOf(Method method) {
+        for (Parameter parameter : method.getParameters())
+            if (!parameter.isAnnotationPresent(Context.class)) return parameter.getType();
+        return Object.class;
+    }
+
+    private static Class<?> responseTypeOf(Method method) {
+        if (method.getReturnType() == void.class) return null;
+        if (method.getReturnType() != Future.class) return method.getReturnType();
+        Type type = method.getGenericReturnType();
+        if (!(type instanceof ParameterizedType)) return Object.class;
+        Type result = ((ParameterizedType) type).getActualTypeArguments()[0];
+        if (result instanceof ParameterizedType) result = ((ParameterizedType) result).getRawType();
+        return result instanceof Class && result != Void.class ? (Class<?>) result : Object.class;
     }
 }
@@ -0,0 +1,24 @@
+package com.github.hlvx.websocket.models;
+
+import java.util.List;
+
+/**
+ * The commands of a batch frame, dispatched together and answered with one frame.
+ */
+public class CommandBatch extends CommandData<List<CommandData>, Object> {
+    private final List<?> frames;
+
+    /**
+     * @param commands the commands, in the order they appear in the frame
+     * @param frames   the part of the frame each command was read from, a String for text frames
+     *                 and a Buffer for binary ones
+     */
+    public CommandBatch(List<CommandData> commands, List<?> frames) {
+        super((Object) null, commands);
+        this.frames = frames;
+    }
+
+    public List<?> getFrames() {
+        return frames;
+    }
+}
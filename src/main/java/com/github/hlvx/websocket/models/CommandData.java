@@ -3,17 +3,65 @@ package com.github.hlvx.websocket.models;
 public class CommandData<D, C> {
     private final D data;
     private final C command;
+    private final int commandId;
+    private final boolean numeric;
+    private final Object correlationId;
 
     public CommandData(C command, D data) {
+        this(command, data, null);
+    }
+
+    /**
+     * @param correlationId the id the client gave the request, echoed back in the response. May
+     *                      be null.
+     */
+    public CommandData(C command, D data, Object correlationId) {
         this.command = command;
         this.data = data;
+        this.commandId = 0;
+        this.numeric = false;
+        this.correlationId = correlationId;
+    }
+
+    /**
+     * Creates command data for a numeric command, without boxing the id.
+     */
+    public CommandData(int commandId, D data) {
+        this(commandId, data, null);
+    }
+
+    public CommandData(int commandId, D data, Object correlationId) {
+        this.command = null;
+        this.data = data;
+        this.commandId = commandId;
+        this.numeric = true;
+        this.correlationId = correlationId;
     }
 
+    @SuppressWarnings("unchecked")
     public C getCommand() {
-        return command;
+        return numeric ? (C) Integer.valueOf(commandId) : command;
+    }
+
+    /**
+     * @return true if the command is a numeric id, available from {@link #getCommandId()}
+     */
+    public boolean isNumeric() {
+        return numeric;
+    }
+
+    public int getCommandId() {
+        return commandId;
     }
 
     public D getData() {
         return data;
     }
+
+    /**
+     * @return the id the client gave the request, null if it did not give one
+     */
+    public Object getCorrelationId() {
+        return correlationId;
+    }
 }
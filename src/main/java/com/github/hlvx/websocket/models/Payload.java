@@ -0,0 +1,16 @@
+package com.github.hlvx.websocket.models;
+
+/**
+ * Command data that is only decoded once a command asks for it, into the type it declares.
+ */
+public interface Payload {
+    <T> T as(Class<T> type);
+
+    /**
+     * @return a key equal for requests with the same data, to find their cached response, null if
+     * their responses can not be cached
+     */
+    default Object cacheKey() {
+        return null;
+    }
+}
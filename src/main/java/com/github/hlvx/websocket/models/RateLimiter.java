@@ -0,0 +1,60 @@
+package com.github.hlvx.websocket.models;
+
+import com.github.hlvx.websocket.servers.OverloadPolicy;
+import com.github.hlvx.websocket.servers.RateLimitOptions;
+
+/**
+ * A token bucket shared by every connection, whose state is kept by each connection in its
+ * {@link RateLimits} at the index the server assigned to the limiter.
+ * <p>
+ * The bucket is tracked as the time it will be full again, moved forward by one interval per
+ * command: a command is allowed while that time is at most burst - 1 intervals ahead. Taking a
+ * permit is then a single compare-and-set.
+ */
+public final class RateLimiter {
+    private static final long EPOCH = System.nanoTime();
+
+    private final int index;
+    private final long interval;
+    private final long tolerance;
+    private final OverloadPolicy overloadPolicy;
+
+    public RateLimiter(int index, RateLimitOptions options) {
+        this.index = index;
+        interval = Math.max(options.getUnit().toNanos(options.getPeriod()) / options.getPermits(), 1);
+        tolerance = interval * (options.getBurst() - 1);
+        overloadPolicy = options.getOverloadPolicy();
+    }
+
+    /**
+     * @return the clock of the limiters, in nanoseconds, never negative
+     */
+    public static long now() {
+        return System.nanoTime() - EPOCH;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public OverloadPolicy getOverloadPolicy() {
+        return overloadPolicy;
+    }
+
+    /**
+     * Takes a permit from the bucket of a connection.
+     * @param force take the permit even if the bucket is empty, for callers that slow the
+     *              connection down rather than refuse the command
+     * @return 0 if a permit was available, otherwise the nanoseconds until one is, in which case
+     * no permit was taken unless forced
+     */
+    public long acquire(RateLimits limits, long now, boolean force) {
+        while (true) {
+            long full = limits.get(index);
+            long from = Math.max(full, now);
+            long wait = from - tolerance - now;
+            if (wait > 0 && !force) return wait;
+            if (limits.compareAndSet(index, full, from + interval)) return Math.max(wait, 0);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.hlvx.websocket.models;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The token buckets of one connection, indexed by the ids the server assigns to its
+ * {@link RateLimiter}s.
+ */
+public class RateLimits {
+    private volatile AtomicLongArray buckets;
+
+    public RateLimits(int size) {
+        buckets = new AtomicLongArray(Math.max(size, 1));
+    }
+
+    long get(int index) {
+        AtomicLongArray buckets = this.buckets;
+        return index < buckets.length() ? buckets.get(index) : 0;
+    }
+
+    boolean compareAndSet(int index, long expected, long value) {
+        AtomicLongArray buckets = this.buckets;
+        if (index >= buckets.length()) buckets = grow(index + 1);
+        return buckets.compareAndSet(index, expected, value);
+    }
+
+    private synchronized AtomicLongArray grow(int size) {
+        if (size <= buckets.length()) return buckets;
+        AtomicLongArray grown = new AtomicLongArray(Math.max(size, buckets.length() * 2));
+        for (int i = 0; i < buckets.length(); ++i) grown.set(i, buckets.get(i));
+        buckets = grown;
+        return grown;
+    }
+}
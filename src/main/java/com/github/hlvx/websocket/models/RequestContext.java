@@ -2,33 +2,60 @@ package com.github.hlvx.websocket.models;
 
 import com.github.hlvx.websocket.io.readers.Reader;
 import com.github.hlvx.websocket.io.writers.Writer;
+import com.github.hlvx.websocket.servers.BatchResponse;
+import com.github.hlvx.websocket.servers.RequestWindow;
 import io.vertx.core.buffer.Buffer;
-import io.vertx.core.http.ServerWebSocket;
+import io.vertx.ext.auth.User;
 
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * The state of one message, allocated for every frame. Objects commands take as
+ * {@link com.github.hlvx.websocket.annotations.Context} parameters are resolved when the command
+ * is registered, the registry is only allocated when something is registered in it.
+ */
 public class RequestContext {
-    private final Buffer data;
+    private Buffer data;
+    private final String text;
     private final WebSocketContext webSocketContext;
     private final Writer writer;
     private final Reader reader;
     private CommandData commandData;
-    private final Map<Class<?>, Object> registeredObjects = new HashMap<>();
+    private RequestWindow.Slot responseSlot;
+    private BatchResponse batch;
+    private int batchIndex;
+    private Object cacheKey;
+    private Map<Class<?>, Object> registeredObjects;
 
     public RequestContext(WebSocketContext context, Buffer data, Writer writer, Reader reader) {
+        this(context, data, null, writer, reader);
+    }
+
+    public RequestContext(WebSocketContext context, String text, Writer writer, Reader reader) {
+        this(context, null, text, writer, reader);
+    }
+
+    private RequestContext(WebSocketContext context, Buffer data, String text, Writer writer, Reader reader) {
         this.data = data;
+        this.text = text;
         this.webSocketContext = context;
         this.writer = writer;
         this.reader = reader;
-        registerObject(this);
-        registerObject(webSocketContext);
     }
 
     public Buffer getData() {
+        if (data == null && text != null) data = Buffer.buffer(text);
         return data;
     }
 
+    /**
+     * @return the content of the frame if it was a text frame, null otherwise
+     */
+    public String getText() {
+        return text;
+    }
+
     public WebSocketContext getWebSocketContext() {
         return webSocketContext;
     }
@@ -49,11 +76,60 @@ public class RequestContext {
         this.commandData = commandData;
     }
 
+    /**
+     * @return the place of the request in the {@link RequestWindow} of its connection, null if the
+     * server does not pipeline requests
+     */
+    public RequestWindow.Slot getResponseSlot() {
+        return responseSlot;
+    }
+
+    public void setResponseSlot(RequestWindow.Slot responseSlot) {
+        this.responseSlot = responseSlot;
+    }
+
+    /**
+     * @return the batch the command belongs to, null if it was sent in a frame of its own
+     */
+    public BatchResponse getBatch() {
+        return batch;
+    }
+
+    public int getBatchIndex() {
+        return batchIndex;
+    }
+
+    public void setBatch(BatchResponse batch, int index) {
+        this.batch = batch;
+        this.batchIndex = index;
+    }
+
+    /**
+     * @return the key the response is cached under once encoded, null if it is not cached
+     */
+    public Object getCacheKey() {
+        return cacheKey;
+    }
+
+    public void setCacheKey(Object cacheKey) {
+        this.cacheKey = cacheKey;
+    }
+
     public void registerObject(Object obj) {
+        if (registeredObjects == null) registeredObjects = new HashMap<>(4);
         registeredObjects.put(obj.getClass(), obj);
     }
 
+    /**
+     * @return the object registered with objType, this request, its connection, or the user of
+     * the connection if objType is their class
+     */
     public Object getRegisteredObject(Class<?> objType) {
-        return registeredObjects.get(objType);
+        Object obj = registeredObjects != null ? registeredObjects.get(objType) : null;
+        if (obj != null) return obj;
+        if (objType == getClass()) return this;
+        if (objType == webSocketContext.getClass()) return webSocketContext;
+        User user = webSocketContext.getUser();
+        return user != null && objType == user.getClass() ? user : null;
     }
 }
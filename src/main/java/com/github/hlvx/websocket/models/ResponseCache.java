@@ -0,0 +1,118 @@
+package com.github.hlvx.websocket.models;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The encoded responses of a {@link com.github.hlvx.websocket.annotations.Cacheable} command,
+ * by the data of their request, dropping the least recently used once full.
+ * <p>
+ * Event loops read and write without locking. Eviction is approximate: once the cache holds more
+ * than maxSize responses, one writer drops the expired ones and the least recently used down to
+ * three quarters of maxSize, while the others keep going.
+ */
+public class ResponseCache {
+    private final int maxSize;
+    private final long ttl;
+    private final Map<Object, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /**
+     * @param ttl in nanoseconds, how long a response is kept
+     */
+    public ResponseCache(int maxSize, long ttl) {
+        if (maxSize < 1) throw new IllegalArgumentException("maxSize must be > 0");
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+    }
+
+    /**
+     * @return the encoded response, null if there is none or it expired
+     */
+    public Buffer get(Object key) {
+        Entry entry = entries.get(key);
+        if (entry == null) return null;
+        long now = System.nanoTime();
+        if (entry.expiresAt - now <= 0) {
+            entries.remove(key, entry);
+            return null;
+        }
+        entry.lastUsed = now;
+        return entry.response;
+    }
+
+    /**
+     * @param key the request data, buffers are copied as they may be slices of the frame
+     */
+    public void put(Object key, Buffer response) {
+        long now = System.nanoTime();
+        if (key instanceof Buffer) key = ((Buffer) key).copy();
+        entries.put(key, new Entry(response, now + ttl, now));
+        if (entries.size() > maxSize && evicting.compareAndSet(false, true)) {
+            try {
+                evict(now);
+            } finally {
+                evicting.set(false);
+            }
+        }
+    }
+
+    public void invalidate(Object key) {
+        entries.remove(key);
+    }
+
+    public void invalidate() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Evicting a quarter of the cache at once shares the cost of finding the least recently used
+     * between the puts that filled it again.
+     */
+    private void evict(long now) {
+        int keep = maxSize - maxSize / 4;
+        int capacity = entries.size();
+        Object[] keys = new Object[capacity];
+        Entry[] values = new Entry[capacity];
+        long[] ages = new long[capacity];
+        int count = 0;
+        for (Iterator<Map.Entry<Object, Entry>> iterator = entries.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<Object, Entry> entry = iterator.next();
+            if (entry.getValue().expiresAt - now <= 0) {
+                iterator.remove();
+            } else if (count < capacity) {
+                keys[count] = entry.getKey();
+                values[count] = entry.getValue();
+                ages[count++] = now - entry.getValue().lastUsed;
+            }
+        }
+        if (count <= keep) return;
+        long[] sorted = Arrays.copyOf(ages, count);
+        Arrays.sort(sorted);
+        long cutoff = sorted[keep];
+        // Ages are the ones seen by the scan, responses read since may still go
+        for (int i = 0, evictions = count - keep; i < count && evictions > 0; ++i)
+            if (ages[i] >= cutoff && entries.remove(keys[i], values[i])) --evictions;
+    }
+
+    private static class Entry {
+        final Buffer response;
+        final long expiresAt;
+        volatile long lastUsed;
+
+        Entry(Buffer response, long expiresAt, long lastUsed) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
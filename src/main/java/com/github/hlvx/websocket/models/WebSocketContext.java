@@ -1,20 +1,54 @@
 package com.github.hlvx.websocket.models;
 
+import com.github.hlvx.websocket.io.SharedFrame;
+import com.github.hlvx.websocket.metrics.WebSocketMetrics;
+import com.github.hlvx.websocket.servers.OutboundPolicy;
+import com.github.hlvx.websocket.servers.OutboundQueue;
+import com.github.hlvx.websocket.servers.PipeliningOptions;
+import com.github.hlvx.websocket.servers.RequestWindow;
 import com.github.hlvx.websocket.servers.WebSocketServer;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
 import io.vertx.core.http.ServerWebSocket;
 import io.vertx.ext.auth.User;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
+/**
+ * The state of one connection. Servers can hold hundreds of thousands of them, so what is not
+ * needed by every connection (subscriptions, authorizations...) is only allocated on first use.
+ */
 public class WebSocketContext {
+    private static final AtomicIntegerFieldUpdater<WebSocketContext> READ_PAUSES =
+            AtomicIntegerFieldUpdater.newUpdater(WebSocketContext.class, "readPauses");
+
     private User user;
     private final WebSocketServer server;
     private final ServerWebSocket client;
+    private final Context context;
+    private final OutboundQueue outbound;
+    private final RequestWindow requestWindow;
+    private volatile int readPauses;
+    // Owned by the event loop of the connection, see HeartbeatOptions
+    private int idleRounds;
+    private int heartbeatSlot = -1;
+    private int heartbeatIndex;
+    private volatile Set<String> subscriptions;
+    private volatile AuthorizationCache authorizationCache;
+    private volatile RateLimits rateLimits;
+    private WebSocketMetrics metrics = WebSocketMetrics.NOOP;
 
     public WebSocketContext(WebSocketServer webSocketServer, ServerWebSocket client) {
         this.server = webSocketServer;
         this.client = client;
+        this.context = Vertx.currentContext();
+        OutboundPolicy policy = webSocketServer != null ? webSocketServer.getOutboundPolicy() : null;
+        outbound = policy != null ? new OutboundQueue(this, policy, webSocketServer.getOutboundStats()) : null;
+        PipeliningOptions pipelining = webSocketServer != null ? webSocketServer.getPipeliningOptions() : null;
+        requestWindow = pipelining != null ? new RequestWindow(this, pipelining) : null;
     }
 
     public ServerWebSocket getClient() {
@@ -27,9 +61,191 @@ public class WebSocketContext {
 
     public void setUser(User user) {
         this.user = user;
+        invalidateAuthorizations();
+    }
+
+    /**
+     * @param size the number of permissions known to the server
+     * @return the cached authorizations of the user of this connection
+     */
+    public AuthorizationCache getAuthorizationCache(int size) {
+        AuthorizationCache cache = authorizationCache;
+        if (cache == null) {
+            synchronized (this) {
+                if (authorizationCache == null) authorizationCache = new AuthorizationCache(size);
+                cache = authorizationCache;
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * @param size the number of rate limiters known to the server
+     * @return the token buckets of this connection
+     */
+    public RateLimits getRateLimits(int size) {
+        RateLimits limits = rateLimits;
+        if (limits == null) {
+            synchronized (this) {
+                if (rateLimits == null) rateLimits = new RateLimits(size);
+                limits = rateLimits;
+            }
+        }
+        return limits;
+    }
+
+    /**
+     * Forgets the cached authorizations, permissions are asked to the user again on the next
+     * commands. Called when the user changes.
+     */
+    public void invalidateAuthorizations() {
+        AuthorizationCache cache = authorizationCache;
+        if (cache != null) cache.invalidate();
     }
 
     public WebSocketServer getServer() {
         return server;
     }
+
+    /**
+     * @return the context the connection was accepted on, null if it was created outside of Vert.x
+     */
+    public Context getContext() {
+        return context;
+    }
+
+    /**
+     * Writes a frame to the connection, through its outbound queue if the server has an
+     * {@link OutboundPolicy}.
+     * @param coalesceKey if not null, a queued frame with an equal key is replaced by this one
+     */
+    public void write(SharedFrame frame, Object coalesceKey) {
+        if (outbound != null) outbound.write(frame, coalesceKey);
+        else frame.writeTo(client);
+    }
+
+    /**
+     * Closes the connection after the frames its outbound queue still holds.
+     */
+    public void close(short statusCode, String reason) {
+        if (outbound != null) outbound.closeAfterPending(statusCode, reason);
+        else if (!client.isClosed()) client.close(statusCode, reason);
+    }
+
+    /**
+     * @return the outbound queue of the connection, null if the server has no {@link OutboundPolicy}
+     */
+    public OutboundQueue getOutbound() {
+        return outbound;
+    }
+
+    /**
+     * @return the requests waiting for their response, null if the server has no
+     * {@link PipeliningOptions}
+     */
+    public RequestWindow getRequestWindow() {
+        return requestWindow;
+    }
+
+    /**
+     * Stops reading from the socket until every caller of this method called
+     * {@link #resumeReads()}, so that independent reasons to pause do not resume each other.
+     */
+    public void pauseReads() {
+        if (READ_PAUSES.getAndIncrement(this) == 0) client.pause();
+    }
+
+    public void resumeReads() {
+        if (READ_PAUSES.decrementAndGet(this) == 0 && !client.isClosed()) client.resume();
+    }
+
+    /**
+     * @return the metrics that counted the connection when it was opened, told when it is closed
+     */
+    public WebSocketMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(WebSocketMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Records that the client sent a frame, from the event loop of the connection.
+     */
+    public void touch() {
+        idleRounds = 0;
+    }
+
+    /**
+     * @return how many times the heartbeat visited the connection since its last frame
+     */
+    public int getIdleRounds() {
+        return idleRounds;
+    }
+
+    public void setIdleRounds(int idleRounds) {
+        this.idleRounds = idleRounds;
+    }
+
+    /**
+     * @return the slot of the connection in the heartbeat wheel of its event loop, -1 if none
+     */
+    public int getHeartbeatSlot() {
+        return heartbeatSlot;
+    }
+
+    public int getHeartbeatIndex() {
+        return heartbeatIndex;
+    }
+
+    public void setHeartbeatPosition(int slot, int index) {
+        heartbeatSlot = slot;
+        heartbeatIndex = index;
+    }
+
+    /**
+     * Releases what the connection holds once its socket is closed.
+     */
+    public void dispose() {
+        unsubscribeAll();
+        if (outbound != null) outbound.close();
+        if (requestWindow != null) requestWindow.close();
+    }
+
+    /**
+     * Subscribes this connection to messages published on topic.
+     * @return true if the connection was not already subscribed
+     */
+    public boolean subscribe(String topic) {
+        Set<String> topics = subscriptions;
+        if (topics == null) {
+            synchronized (this) {
+                if (subscriptions == null) subscriptions = ConcurrentHashMap.newKeySet();
+                topics = subscriptions;
+            }
+        }
+        topics.add(topic);
+        return server.getTopics().subscribe(topic, this);
+    }
+
+    /**
+     * @return true if the connection was subscribed
+     */
+    public boolean unsubscribe(String topic) {
+        Set<String> topics = subscriptions;
+        if (topics != null) topics.remove(topic);
+        return server.getTopics().unsubscribe(topic, this);
+    }
+
+    public void unsubscribeAll() {
+        Set<String> topics = subscriptions;
+        if (topics == null) return;
+        for (String topic : topics) unsubscribe(topic);
+    }
+
+    public Set<String> getSubscriptions() {
+        Set<String> topics = subscriptions;
+        return topics != null ? Collections.unmodifiableSet(topics) : Collections.emptySet();
+    }
 }
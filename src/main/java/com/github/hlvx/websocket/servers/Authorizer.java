@@ -0,0 +1,110 @@
+package com.github.hlvx.websocket.servers;
+
+import com.github.hlvx.websocket.models.AuthorizationCache;
+import com.github.hlvx.websocket.models.WebSocketContext;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.ext.auth.User;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks command permissions against the {@link AuthorizationCache} of the connection.
+ * <p>
+ * Every permission gets an id when a service is registered, and commands keep the ids of their
+ * effective permissions. When every answer is cached the check is a few array reads, otherwise
+ * only the missing permissions are asked to the {@link User}, all at once.
+ */
+class Authorizer {
+    static final int DENIED = 0;
+    static final int GRANTED = 1;
+    static final int UNKNOWN = -1;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private volatile String[] names = new String[0];
+    private volatile long ttl;
+
+    Authorizer(long ttl) {
+        this.ttl = ttl;
+    }
+
+    synchronized int[] register(Set<String> permissions) {
+        int[] result = new int[permissions.size()];
+        int i = 0;
+        for (String permission : permissions) {
+            Integer id = ids.get(permission);
+            if (id == null) {
+                id = names.length;
+                ids.put(permission, id);
+                String[] grown = Arrays.copyOf(names, id + 1);
+                grown[id] = permission;
+                names = grown;
+            }
+            result[i++] = id;
+        }
+        return result;
+    }
+
+    int check(int[] permissionIds, WebSocketContext connection) {
+        if (permissionIds.length == 0) return GRANTED;
+        if (ttl <= 0) return UNKNOWN;
+        AuthorizationCache cache = connection.getAuthorizationCache(names.length);
+        long now = System.currentTimeMillis();
+        int result = GRANTED;
+        for (int permissionId : permissionIds) {
+            int cached = cache.get(permissionId, now);
+            if (cached == DENIED) return DENIED;
+            if (cached == UNKNOWN) result = UNKNOWN;
+        }
+        return result;
+    }
+
+    /**
+     * Asks the user for the permissions that are not cached and caches the answers.
+     * The handler receives false as soon as one permission is denied.
+     */
+    void resolve(int[] permissionIds, WebSocketContext connection, User user, Handler<AsyncResult<Boolean>> handler) {
+        long ttl = this.ttl;
+        String[] names = this.names;
+        AuthorizationCache cache = ttl > 0 ? connection.getAuthorizationCache(names.length) : null;
+        long now = System.currentTimeMillis();
+        int[] missing = cache == null ? permissionIds : Arrays.stream(permissionIds)
+                .filter(id -> cache.get(id, now) == UNKNOWN).toArray();
+        int generation = cache != null ? cache.getGeneration() : 0;
+        if (missing.length == 0) {
+            handler.handle(Future.succeededFuture(check(permissionIds, connection) == GRANTED));
+            return;
+        }
+        AtomicInteger remaining = new AtomicInteger(missing.length);
+        AtomicBoolean done = new AtomicBoolean();
+        for (int permissionId : missing) {
+            user.isAuthorized(names[permissionId], result -> {
+                if (result.failed()) {
+                    if (done.compareAndSet(false, true)) handler.handle(Future.failedFuture(result.cause()));
+                    return;
+                }
+                // The connection may have changed user while the answer was computed
+                if (cache != null && connection.getUser() == user)
+                    cache.put(permissionId, result.result(), System.currentTimeMillis() + ttl, generation);
+                if (!result.result()) {
+                    if (done.compareAndSet(false, true)) handler.handle(Future.succeededFuture(false));
+                } else if (remaining.decrementAndGet() == 0 && done.compareAndSet(false, true))
+                    handler.handle(Future.succeededFuture(true));
+            });
+        }
+    }
+
+    long getTtl() {
+        return ttl;
+    }
+
+    void setTtl(long ttl) {
+        this.ttl = ttl;
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.hlvx.websocket.servers;
+
+import com.github.hlvx.websocket.models.RequestContext;
+import io.vertx.core.buffer.Buffer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the responses to the commands of a batch frame and sends them as one frame once every
+ * command completed. With a linger, the responses ready when it expires are sent without waiting
+ * for the slower ones, which are sent together when the batch completes.
+ * Responses within a frame keep the order of the commands in the batch.
+ */
+public final class BatchResponse {
+    private final WebSocketServer server;
+    private final RequestContext request;
+    private final boolean binary;
+    private final Buffer[] responses;
+    private final boolean[] completed;
+    private final long linger;
+    private int remaining;
+    private long timerId = -1;
+
+    BatchResponse(WebSocketServer server, RequestContext request, boolean binary, int size, long linger) {
+        this.server = server;
+        this.request = request;
+        this.binary = binary;
+        this.linger = linger;
+        responses = new Buffer[size];
+        completed = new boolean[size];
+        remaining = size;
+    }
+
+    /**
+     * @param response the encoded response of the command, null if it failed
+     */
+    synchronized void complete(int index, Buffer response) {
+        if (completed[index]) return;
+        completed[index] = true;
+        responses[index] = response;
+        if (--remaining == 0) {
+            if (timerId >= 0) server.getVertx().cancelTimer(timerId);
+            flush(true);
+        } else if (response != null && linger > 0 && timerId < 0) {
+            timerId = server.getVertx().setTimer(linger, id -> lingerExpired());
+        }
+    }
+
+    private synchronized void lingerExpired() {
+        timerId = -1;
+        if (remaining > 0) flush(false);
+    }
+
+    private void flush(boolean last) {
+        List<Buffer> ready = new ArrayList<>();
+        for (int i = 0; i < responses.length; ++i) {
+            if (responses[i] == null) continue;
+            ready.add(responses[i]);
+            responses[i] = null;
+        }
+        server.writeBatch(request, binary, ready, last);
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.hlvx.websocket.servers;
+
+import com.github.hlvx.websocket.models.Command;
+import com.github.hlvx.websocket.models.CommandData;
+
+import java.util.Map;
+
+/**
+ * Immutable lookup table of binary commands, keyed by primitive ids.
+ * <p>
+ * Ids spanning a small range are stored in a dense array indexed by {@code id - offset}, sparse
+ * ids in an open-addressing table with linear probing.
+ */
+final class BinaryCommandTable {
+    static final BinaryCommandTable EMPTY = new BinaryCommandTable(new int[0], new Command[0], 0, false);
+
+    private static final int MIN_DENSE_RANGE = 256;
+
+    private final int[] keys;
+    private final Command[] commands;
+    private final int offset;
+    private final boolean dense;
+
+    private BinaryCommandTable(int[] keys, Command[] commands, int offset, boolean dense) {
+        this.keys = keys;
+        this.commands = commands;
+        this.offset = offset;
+        this.dense = dense;
+    }
+
+    static BinaryCommandTable of(Map<Integer, Command> commands) {
+        if (commands.isEmpty()) return EMPTY;
+        int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+        for (int id : commands.keySet()) {
+            min = Math.min(min, id);
+            max = Math.max(max, id);
+        }
+        long range = (long) max - min + 1;
+        if (range <= Math.max(MIN_DENSE_RANGE, 4L * commands.size())) {
+            Command[] table = new Command[(int) range];
+            for (Map.Entry<Integer, Command> entry : commands.entrySet())
+                table[entry.getKey() - min] = entry.getValue();
+            return new BinaryCommandTable(null, table, min, true);
+        }
+
+        int capacity = Integer.highestOneBit(commands.size() * 2 - 1) << 1;
+        int[] keys = new int[capacity];
+        Command[] table = new Command[capacity];
+        for (Map.Entry<Integer, Command> entry : commands.entrySet()) {
+            int i = index(entry.getKey(), capacity - 1);
+            while (table[i] != null) i = (i + 1) & (capacity - 1);
+            keys[i] = entry.getKey();
+            table[i] = entry.getValue();
+        }
+        return new BinaryCommandTable(keys, table, 0, false);
+    }
+
+    Command get(int id) {
+        if (dense) {
+            int i = id - offset;
+            return i >= 0 && i < commands.length ? commands[i] : null;
+        }
+        int mask = commands.length - 1;
+        if (mask < 0) return null;
+        for (int i = index(id, mask); ; i = (i + 1) & mask) {
+            Command command = commands[i];
+            if (command == null || keys[i] == id) return command;
+        }
+    }
+
+    /**
+     * Looks up the command of frames read by any reader, whether it gives a primitive id or a
+     * boxed number.
+     */
+    Command get(CommandData<?, ?> data) {
+        if (data.isNumeric()) return get(data.getCommandId());
+        Object command = data.getCommand();
+        return command instanceof Number ? get(((Number) command).intValue()) : null;
+    }
+
+    private static int index(int id, int mask) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
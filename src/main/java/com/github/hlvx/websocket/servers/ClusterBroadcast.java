@@ -0,0 +1,152 @@
+package com.github.hlvx.websocket.servers;
+
+import com.github.hlvx.websocket.io.SharedFrame;
+import io.netty.buffer.ByteBuf;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Relays topic publications to the other nodes of the cluster over the event bus.
+ * <p>
+ * Every topic has its own address, and a node only consumes the addresses of topics it has local
+ * subscribers for, so publications only travel to nodes that need them. Frames travel already
+ * encoded and are batched per topic for a short linger. A batch is a sequence of
+ * {@code [binary flag: byte][length: int][frame bytes]} entries, the receiving node forwards the
+ * bytes to its subscribers as they are. A batch only lives until it is flushed, so topics that
+ * are no longer published to leave nothing behind.
+ */
+class ClusterBroadcast implements TopicRegistry.Listener {
+    private static final String ORIGIN_HEADER = "origin";
+
+    private final Vertx vertx;
+    private final TopicRegistry topics;
+    private final ClusterBroadcastOptions options;
+    private final int maxFrameSize;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final DeliveryOptions deliveryOptions = new DeliveryOptions().addHeader(ORIGIN_HEADER, nodeId);
+    private final Map<String, MessageConsumer<Buffer>> consumers = new ConcurrentHashMap<>();
+    private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+
+    ClusterBroadcast(Vertx vertx, TopicRegistry topics, ClusterBroadcastOptions options, int maxFrameSize) {
+        this.vertx = vertx;
+        this.topics = topics;
+        this.options = options;
+        this.maxFrameSize = maxFrameSize;
+        topics.setListener(this);
+        for (String topic : topics.getTopics()) topicAdded(topic);
+    }
+
+    void send(String topic, SharedFrame frame) {
+        if (options.getLinger() == 0) {
+            Buffer buffer = Buffer.buffer(frame.length() + 5);
+            append(buffer, frame);
+            publish(topic, buffer);
+            return;
+        }
+        // A batch is dropped from the map once flushed, a frame racing with the flush retries
+        while (!batches.computeIfAbsent(topic, Batch::new).add(frame)) ;
+    }
+
+    /**
+     * @return the topics with frames waiting for their batch to be flushed
+     */
+    int pendingBatches() {
+        return batches.size();
+    }
+
+    @Override
+    public synchronized void topicAdded(String topic) {
+        if (!topics.hasSubscribers(topic) || consumers.containsKey(topic)) return;
+        EventBus eventBus = vertx.eventBus();
+        consumers.put(topic, eventBus.<Buffer>consumer(options.getAddressPrefix() + topic,
+                message -> receive(topic, message)));
+    }
+
+    @Override
+    public synchronized void topicRemoved(String topic) {
+        if (topics.hasSubscribers(topic)) return;
+        MessageConsumer<Buffer> consumer = consumers.remove(topic);
+        if (consumer != null) consumer.unregister();
+    }
+
+    private void receive(String topic, Message<Buffer> message) {
+        if (nodeId.equals(message.headers().get(ORIGIN_HEADER))) return;
+        ByteBuf batch = message.body().getByteBuf();
+        int index = batch.readerIndex();
+        while (index < batch.writerIndex()) {
+            boolean binary = batch.getByte(index) != 0;
+            int length = batch.getInt(index + 1);
+            SharedFrame frame = SharedFrame.wrap(batch.slice(index + 5, length), binary, maxFrameSize);
+            topics.publish(topic, frame, null);
+            index += 5 + length;
+        }
+    }
+
+    private void publish(String topic, Buffer buffer) {
+        vertx.eventBus().publish(options.getAddressPrefix() + topic, buffer, deliveryOptions);
+    }
+
+    private static void append(Buffer buffer, SharedFrame frame) {
+        buffer.appendByte((byte) (frame.isBinary() ? 1 : 0));
+        buffer.appendInt(frame.length());
+        buffer.appendBuffer(Buffer.buffer(frame.content()));
+    }
+
+    void close() {
+        topics.setListener(null);
+        for (Batch batch : batches.values()) batch.flush();
+        synchronized (this) {
+            for (MessageConsumer<Buffer> consumer : consumers.values()) consumer.unregister();
+            consumers.clear();
+        }
+    }
+
+    private class Batch {
+        private final String topic;
+        private Buffer buffer;
+        private long timerId = -1;
+        private boolean flushed;
+
+        Batch(String topic) {
+            this.topic = topic;
+        }
+
+        /**
+         * @return false if the batch was already flushed, the frame must go to a new one
+         */
+        synchronized boolean add(SharedFrame frame) {
+            if (flushed) return false;
+            if (buffer == null) buffer = Buffer.buffer(Math.max(frame.length() + 5, 256));
+            append(buffer, frame);
+            if (buffer.length() >= options.getMaxBatchSize()) flush();
+            else if (timerId == -1) timerId = vertx.setTimer(options.getLinger(), id -> {
+                synchronized (this) {
+                    if (timerId == id) flush();
+                }
+            });
+            return true;
+        }
+
+        synchronized void flush() {
+            if (timerId != -1) {
+                vertx.cancelTimer(timerId);
+                timerId = -1;
+            }
+            if (flushed) return;
+            flushed = true;
+            batches.remove(topic, this);
+            if (buffer == null) return;
+            Buffer batch = buffer;
+            buffer = null;
+            publish(topic, batch);
+        }
+    }
+}
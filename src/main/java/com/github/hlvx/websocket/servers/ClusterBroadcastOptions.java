@@ -0,0 +1,52 @@
+package com.github.hlvx.websocket.servers;
+
+/**
+ * Configuration of topic publication across a Vert.x cluster.
+ */
+public class ClusterBroadcastOptions {
+    public static final String DEFAULT_ADDRESS_PREFIX = "hlvx.websocket.topic.";
+    public static final long DEFAULT_LINGER = 5;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 64 * 1024;
+
+    private String addressPrefix = DEFAULT_ADDRESS_PREFIX;
+    private long linger = DEFAULT_LINGER;
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+    /**
+     * @return the prefix of the event bus address each topic is published on
+     */
+    public String getAddressPrefix() {
+        return addressPrefix;
+    }
+
+    public ClusterBroadcastOptions setAddressPrefix(String addressPrefix) {
+        this.addressPrefix = addressPrefix;
+        return this;
+    }
+
+    /**
+     * @return how long, in milliseconds, messages for a topic are held to be sent together.
+     * 0 sends every message on its own.
+     */
+    public long getLinger() {
+        return linger;
+    }
+
+    public ClusterBroadcastOptions setLinger(long linger) {
+        if (linger < 0) throw new IllegalArgumentException("linger must be >= 0");
+        this.linger = linger;
+        return this;
+    }
+
+    /**
+     * @return the size, in bytes, past which a batch is sent without waiting for the linger
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public ClusterBroadcastOptions setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.hlvx.websocket.servers;
+
+import com.github.hlvx.websocket.models.Command;
+import com.github.hlvx.websocket.models.CommandData;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the commands of a server and of their lookup tables. The server publishes
+ * a new one through a single volatile write, so a request sees every command of a registration
+ * or none of them.
+ */
+final class CommandRegistry {
+    static final CommandRegistry EMPTY = new CommandRegistry(Collections.emptyMap(), Collections.emptyMap());
+
+    private final Map<String, Command> textCommands;
+    private final Map<Integer, Command> binaryCommands;
+    private final TextCommandTable textTable;
+    private final BinaryCommandTable binaryTable;
+
+    /**
+     * @param textCommands   owned by the registry from now on
+     * @param binaryCommands owned by the registry from now on
+     */
+    CommandRegistry(Map<String, Command> textCommands, Map<Integer, Command> binaryCommands) {
+        this.textCommands = Collections.unmodifiableMap(textCommands);
+        this.binaryCommands = Collections.unmodifiableMap(binaryCommands);
+        textTable = TextCommandTable.of(textCommands);
+        binaryTable = BinaryCommandTable.of(binaryCommands);
+    }
+
+    Map<String, Command> getTextCommands() {
+        return textCommands;
+    }
+
+    Map<Integer, Command> getBinaryCommands() {
+        return binaryCommands;
+    }
+
+    /**
+     * @return the command of a frame, null if none is registered
+     */
+    Command lookup(CommandData commandData, boolean binary) {
+        return binary ? binaryTable.get(commandData) : textTable.get(commandData.getCommand());
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.hlvx.websocket.servers;
+
+import com.github.hlvx.websocket.models.WebSocketContext;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded {@link WorkerExecutor} shared by the commands bound to it.
+ * <p>
+ * The bound counts commands that are running or waiting for a thread. When it is reached, the
+ * {@link OverloadPolicy} of the pool decides between rejecting the command or accepting it and
+ * pausing the socket it came from. Paused sockets are resumed once the pool is half empty.
+ */
+class CommandWorkerPool {
+    private final WorkerPoolOptions options;
+    private final WorkerExecutor executor;
+    private final int capacity;
+    private final int resumeThreshold;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Queue<WebSocketContext> pausedConnections = new ConcurrentLinkedQueue<>();
+
+    CommandWorkerPool(Vertx vertx, WorkerPoolOptions options) {
+        this.options = options;
+        executor = vertx.createSharedWorkerExecutor(options.getName(), options.getPoolSize(),
+                options.getMaxExecuteTime(), options.getMaxExecuteTimeUnit());
+        capacity = options.getPoolSize() + options.getMaxQueueSize();
+        resumeThreshold = capacity / 2;
+    }
+
+    /**
+     * @return false if the command was rejected, {@code resultHandler} is then never called
+     */
+    <T> boolean execute(WebSocketContext connection, Handler<Promise<T>> task, Handler<AsyncResult<T>> resultHandler) {
+        if (pending.incrementAndGet() > capacity) {
+            if (options.getOverloadPolicy() == OverloadPolicy.REJECT) {
+                pending.decrementAndGet();
+                return false;
+            }
+            connection.pauseReads();
+            pausedConnections.add(connection);
+        }
+        executor.executeBlocking(task, options.isOrdered(), result -> {
+            release();
+            resultHandler.handle(result);
+        });
+        return true;
+    }
+
+    private void release() {
+        if (pending.decrementAndGet() > resumeThreshold) return;
+        WebSocketContext connection;
+        while ((connection = pausedConnections.poll()) != null) connection.resumeReads();
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.hlvx.websocket.servers;
+
+/**
+ * How {@link WebSocketServer#stop(DrainOptions)} lets connections go.
+ * <p>
+ * Connections are closed closeBatchSize at a time, every closeInterval, so that their clients
+ * reconnect to the other nodes a few at a time rather than all at once.
+ */
+public class DrainOptions {
+    public static final long DEFAULT_TIMEOUT = 30_000;
+    public static final int DEFAULT_CLOSE_BATCH_SIZE = 500;
+    public static final long DEFAULT_CLOSE_INTERVAL = 100;
+    public static final short DEFAULT_CLOSE_STATUS = 1001;
+
+    private long timeout = DEFAULT_TIMEOUT;
+    private int closeBatchSize = DEFAULT_CLOSE_BATCH_SIZE;
+    private long closeInterval = DEFAULT_CLOSE_INTERVAL;
+    private short closeStatus = DEFAULT_CLOSE_STATUS;
+
+    /**
+     * @return in milliseconds, how long commands in flight are waited for, then how long closed
+     * connections are waited for
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public DrainOptions setTimeout(long timeout) {
+        if (timeout < 0) throw new IllegalArgumentException("timeout must be >= 0");
+        this.timeout = timeout;
+        return this;
+    }
+
+    public int getCloseBatchSize() {
+        return closeBatchSize;
+    }
+
+    public DrainOptions setCloseBatchSize(int closeBatchSize) {
+        if (closeBatchSize < 1) throw new IllegalArgumentException("closeBatchSize must be > 0");
+        this.closeBatchSize = closeBatchSize;
+        return this;
+    }
+
+    /**
+     * @return in milliseconds, the time between two batches of closed connections
+     */
+    public long getCloseInterval() {
+        return closeInterval;
+    }
+
+    public DrainOptions setCloseInterval(long closeInterval) {
+        if (closeInterval < 1) throw new IllegalArgumentException("closeInterval must be > 0");
+        this.closeInterval = closeInterval;
+        return this;
+    }
+
+    /**
+     * @return the status of the close frames, 1001 (going away) by default
+     */
+    public short getCloseStatus() {
+        return closeStatus;
+    }
+
+    public DrainOptions setCloseStatus(short closeStatus) {
+        this.closeStatus = closeStatus;
+        return this;
+    }
+}
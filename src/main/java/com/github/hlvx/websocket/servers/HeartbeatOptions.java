@@ -0,0 +1,59 @@
+package com.github.hlvx.websocket.servers;
+
+/**
+ * Keeps connections alive with pings and closes the ones that stopped answering, including
+ * half-open sockets whose peer is gone without closing them.
+ * <p>
+ * Each event loop visits its connections once per interval, a slice of them at each of the
+ * wheelSize ticks of the interval. A connection that sent no frame, pong included, since the
+ * previous visit is pinged, and closed once silent for idleTimeout.
+ */
+public class HeartbeatOptions {
+    public static final long DEFAULT_INTERVAL = 30_000;
+    public static final long DEFAULT_IDLE_TIMEOUT = 90_000;
+    public static final int DEFAULT_WHEEL_SIZE = 64;
+
+    private long interval = DEFAULT_INTERVAL;
+    private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private int wheelSize = DEFAULT_WHEEL_SIZE;
+
+    /**
+     * @return in milliseconds, how often connections are visited
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    public HeartbeatOptions setInterval(long interval) {
+        if (interval < 1) throw new IllegalArgumentException("interval must be > 0");
+        this.interval = interval;
+        return this;
+    }
+
+    /**
+     * @return in milliseconds, how long a connection can stay silent before being closed, rounded
+     * up to a multiple of the interval
+     */
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public HeartbeatOptions setIdleTimeout(long idleTimeout) {
+        if (idleTimeout < 1) throw new IllegalArgumentException("idleTimeout must be > 0");
+        this.idleTimeout = idleTimeout;
+        return this;
+    }
+
+    /**
+     * @return in how many slices the connections of an event loop are split
+     */
+    public int getWheelSize() {
+        return wheelSize;
+    }
+
+    public HeartbeatOptions setWheelSize(int wheelSize) {
+        if (wheelSize < 1) throw new IllegalArgumentException("wheelSize must be > 0");
+        this.wheelSize = wheelSize;
+        return this;
+    }
+}
@@ -0,0 +1,121 @@
+package com.github.hlvx.websocket.servers;
+
+import com.github.hlvx.websocket.models.WebSocketContext;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.net.impl.ConnectionBase;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The heartbeat of the connections of one event loop: a single timer visiting one slot of the
+ * wheel per tick, so each connection costs one visit per interval whatever their number.
+ * Only used from its event loop.
+ */
+final class HeartbeatWheel {
+    private static final Buffer PING = Buffer.buffer(Unpooled.EMPTY_BUFFER);
+    // Idle rounds of a connection closed by the heartbeat or seen closing by it
+    private static final int CLOSING = Integer.MIN_VALUE;
+    private static final Field CONNECTION = connectionField();
+
+    private final Vertx vertx;
+    private final List<WebSocketContext>[] slots;
+    private final int maxIdleRounds;
+    private final long timerId;
+    private int size;
+    private int cursor;
+    private int next;
+
+    @SuppressWarnings("unchecked")
+    HeartbeatWheel(Vertx vertx, HeartbeatOptions options) {
+        this.vertx = vertx;
+        slots = new List[options.getWheelSize()];
+        for (int i = 0; i < slots.length; ++i) slots[i] = new ArrayList<>();
+        maxIdleRounds = (int) ((options.getIdleTimeout() + options.getInterval() - 1) / options.getInterval());
+        timerId = vertx.setPeriodic(Math.max(options.getInterval() / slots.length, 1), id -> tick());
+    }
+
+    void add(WebSocketContext context) {
+        int slot = next;
+        next = (next + 1) % slots.length;
+        context.setHeartbeatPosition(slot, slots[slot].size());
+        slots[slot].add(context);
+        ++size;
+    }
+
+    /**
+     * @return true if the wheel has no connection left
+     */
+    boolean remove(WebSocketContext context) {
+        int slot = context.getHeartbeatSlot();
+        if (slot < 0) return size == 0;
+        List<WebSocketContext> contexts = slots[slot];
+        int index = context.getHeartbeatIndex();
+        WebSocketContext last = contexts.remove(contexts.size() - 1);
+        if (last != context) {
+            contexts.set(index, last);
+            last.setHeartbeatPosition(slot, index);
+        }
+        context.setHeartbeatPosition(-1, 0);
+        return --size == 0;
+    }
+
+    private void tick() {
+        List<WebSocketContext> contexts = slots[cursor];
+        cursor = (cursor + 1) % slots.length;
+        // Backwards, as closing a connection may move the last one of the slot to its place
+        for (int i = contexts.size() - 1; i >= 0; --i) {
+            WebSocketContext context = contexts.get(i);
+            ServerWebSocket client = context.getClient();
+            if (client.isClosed()) {
+                // Still open a visit after its close, its close frame could not be written
+                if (context.getIdleRounds() == CLOSING) forceClose(client);
+                else context.setIdleRounds(CLOSING);
+                continue;
+            }
+            int idleRounds = context.getIdleRounds() + 1;
+            context.setIdleRounds(idleRounds);
+            if (idleRounds == 1) continue;
+            try {
+                if (idleRounds > maxIdleRounds) {
+                    client.close();
+                    context.setIdleRounds(CLOSING);
+                } else client.writePing(PING);
+            } catch (IllegalStateException ex) {
+                // Closed by another thread since, checked again on the next visit
+            }
+        }
+    }
+
+    /**
+     * Closes the TCP connection of a client without waiting for its close frame to be written.
+     * Vert.x 3.8 only closes the channel once the close frame is written, which never happens
+     * when the send buffer of a half-open socket is full.
+     */
+    private static void forceClose(ServerWebSocket client) {
+        if (CONNECTION == null) return;
+        try {
+            ((ConnectionBase) CONNECTION.get(client)).channel().close();
+        } catch (IllegalAccessException | ClassCastException ex) {
+            // Not a Vert.x 3.8 WebSocket, left to its own close
+        }
+    }
+
+    private static Field connectionField() {
+        try {
+            Field field = Class.forName("io.vertx.core.http.impl.WebSocketImplBase").getDeclaredField("conn");
+            field.setAccessible(true);
+            return field;
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+    void close() {
+        vertx.cancelTimer(timerId);
+    }
+}
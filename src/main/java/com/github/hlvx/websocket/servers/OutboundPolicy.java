@@ -0,0 +1,75 @@
+package com.github.hlvx.websocket.servers;
+
+/**
+ * Bounds what the server buffers for a connection that does not read its messages fast enough.
+ * <p>
+ * Frames are written straight to the socket while it keeps up. Once the socket's write queue is
+ * full, they wait in a per connection queue holding at most {@link #getHighWatermark()} bytes.
+ * When that is not enough the {@link OverflowStrategy} decides which frames are dropped.
+ */
+public class OutboundPolicy {
+    public static final int DEFAULT_HIGH_WATERMARK = 1024 * 1024;
+    public static final int DEFAULT_LOW_WATERMARK = 512 * 1024;
+
+    public enum OverflowStrategy {
+        /**
+         * Drop queued frames, oldest first, to make room for the new one.
+         */
+        DROP_OLDEST,
+        /**
+         * Keep the queue as it is and drop the new frame.
+         */
+        DROP_NEWEST
+    }
+
+    private int highWatermark = DEFAULT_HIGH_WATERMARK;
+    private int lowWatermark = DEFAULT_LOW_WATERMARK;
+    private OverflowStrategy overflowStrategy = OverflowStrategy.DROP_OLDEST;
+    private long disconnectAfter;
+
+    /**
+     * @return the maximum number of bytes queued for a connection
+     */
+    public int getHighWatermark() {
+        return highWatermark;
+    }
+
+    public OutboundPolicy setHighWatermark(int highWatermark) {
+        this.highWatermark = highWatermark;
+        return this;
+    }
+
+    /**
+     * @return the number of queued bytes under which a connection is no longer considered slow
+     */
+    public int getLowWatermark() {
+        return lowWatermark;
+    }
+
+    public OutboundPolicy setLowWatermark(int lowWatermark) {
+        this.lowWatermark = lowWatermark;
+        return this;
+    }
+
+    public OverflowStrategy getOverflowStrategy() {
+        return overflowStrategy;
+    }
+
+    public OutboundPolicy setOverflowStrategy(OverflowStrategy overflowStrategy) {
+        this.overflowStrategy = overflowStrategy;
+        return this;
+    }
+
+    /**
+     * @return how long, in milliseconds, a connection may stay at its high watermark before it is
+     * closed, 0 to never close it
+     */
+    public long getDisconnectAfter() {
+        return disconnectAfter;
+    }
+
+    public OutboundPolicy setDisconnectAfter(long disconnectAfter) {
+        this.disconnectAfter = disconnectAfter;
+        return this;
+    }
+}
@@ -0,0 +1,177 @@
+package com.github.hlvx.websocket.servers;
+
+import com.github.hlvx.websocket.io.SharedFrame;
+import com.github.hlvx.websocket.models.WebSocketContext;
+import io.vertx.core.Context;
+import io.vertx.core.http.ServerWebSocket;
+
+import java.util.ArrayDeque;
+
+/**
+ * Frames waiting for the socket of one connection to accept more data, see {@link OutboundPolicy}.
+ */
+public class OutboundQueue {
+    private final WebSocketContext connection;
+    private final OutboundPolicy policy;
+    private final OutboundStats stats;
+    private ArrayDeque<Entry> pending;
+    private long queuedBytes;
+    private long droppedFrames;
+    private long overloadedSince;
+    private boolean closed;
+    private short closeStatus;
+    private String closeReason;
+
+    public OutboundQueue(WebSocketContext connection, OutboundPolicy policy, OutboundStats stats) {
+        this.connection = connection;
+        this.policy = policy;
+        this.stats = stats;
+    }
+
+    /**
+     * Writes the frame now if the socket can take it, queues it otherwise.
+     * @param coalesceKey if not null, a queued frame with an equal key is replaced by this one
+     */
+    public synchronized void write(SharedFrame frame, Object coalesceKey) {
+        if (closed) return;
+        ServerWebSocket socket = connection.getClient();
+        if ((pending == null || pending.isEmpty()) && !socket.writeQueueFull()) {
+            send(socket, frame);
+            return;
+        }
+        if (pending == null) pending = new ArrayDeque<>();
+        if (coalesceKey != null && coalesce(frame, coalesceKey)) return;
+
+        int length = frame.length();
+        if (queuedBytes + length > policy.getHighWatermark()) {
+            if (overloaded()) return;
+            if (policy.getOverflowStrategy() == OutboundPolicy.OverflowStrategy.DROP_OLDEST) {
+                while (!pending.isEmpty() && queuedBytes + length > policy.getHighWatermark())
+                    drop(pending.poll());
+            }
+            if (queuedBytes + length > policy.getHighWatermark()) {
+                ++droppedFrames;
+                stats.droppedFrames.increment();
+                return;
+            }
+        }
+        if (pending.isEmpty()) socket.drainHandler(v -> drain());
+        pending.add(new Entry(frame.retain(), coalesceKey));
+        add(length);
+    }
+
+    public synchronized long getQueuedBytes() {
+        return queuedBytes;
+    }
+
+    public synchronized long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * Closes the connection once the queued frames are written, so the close frame follows them.
+     */
+    public synchronized void closeAfterPending(short status, String reason) {
+        if (closed) return;
+        if (pending != null && !pending.isEmpty()) {
+            closeStatus = status;
+            closeReason = reason;
+            return;
+        }
+        ServerWebSocket socket = connection.getClient();
+        if (!socket.isClosed()) socket.close(status, reason);
+    }
+
+    /**
+     * Releases every queued frame, nothing is written after this.
+     */
+    public synchronized void close() {
+        closed = true;
+        if (pending == null) return;
+        Entry entry;
+        while ((entry = pending.poll()) != null) {
+            add(-entry.frame.length());
+            entry.frame.release();
+        }
+    }
+
+    private boolean coalesce(SharedFrame frame, Object coalesceKey) {
+        for (Entry entry : pending) {
+            if (!coalesceKey.equals(entry.key)) continue;
+            add(frame.length() - entry.frame.length());
+            entry.frame.release();
+            entry.frame = frame.retain();
+            stats.coalescedFrames.increment();
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void drain() {
+        if (closed) return;
+        ServerWebSocket socket = connection.getClient();
+        Entry entry;
+        while (!socket.writeQueueFull() && (entry = pending.poll()) != null) {
+            add(-entry.frame.length());
+            send(socket, entry.frame);
+            entry.frame.release();
+        }
+        if (!pending.isEmpty()) socket.drainHandler(v -> drain());
+        else if (closeReason != null && !socket.isClosed()) socket.close(closeStatus, closeReason);
+        if (queuedBytes <= policy.getLowWatermark()) overloadedSince = 0;
+    }
+
+    /**
+     * Records that the queue is full and closes the connection once it has been for too long.
+     * @return true if the connection was closed
+     */
+    private boolean overloaded() {
+        long now = System.currentTimeMillis();
+        if (overloadedSince == 0) {
+            overloadedSince = now;
+            Context context = connection.getContext();
+            if (policy.getDisconnectAfter() > 0 && context != null)
+                context.owner().setTimer(policy.getDisconnectAfter(), id -> {
+                    synchronized (this) {
+                        if (overloadedSince != 0 && !closed) overloaded();
+                    }
+                });
+            return false;
+        }
+        if (policy.getDisconnectAfter() <= 0 || now - overloadedSince < policy.getDisconnectAfter()) return false;
+        stats.slowConsumerDisconnections.increment();
+        close();
+        connection.getClient().close();
+        return true;
+    }
+
+    private void drop(Entry entry) {
+        add(-entry.frame.length());
+        entry.frame.release();
+        ++droppedFrames;
+        stats.droppedFrames.increment();
+    }
+
+    private void add(long bytes) {
+        queuedBytes += bytes;
+        stats.queuedBytes.add(bytes);
+    }
+
+    private static void send(ServerWebSocket socket, SharedFrame frame) {
+        try {
+            frame.writeTo(socket);
+        } catch (IllegalStateException ex) {
+            // The socket closed, its close handler releases the queue
+        }
+    }
+
+    private static class Entry {
+        private SharedFrame frame;
+        private final Object key;
+
+        Entry(SharedFrame frame, Object key) {
+            this.frame = frame;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.hlvx.websocket.servers;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outbound queue counters, summed over every connection of a server.
+ */
+public class OutboundStats {
+    final LongAdder queuedBytes = new LongAdder();
+    final LongAdder droppedFrames = new LongAdder();
+    final LongAdder coalescedFrames = new LongAdder();
+    final LongAdder slowConsumerDisconnections = new LongAdder();
+
+    /**
+     * @return the number of bytes currently waiting in outbound queues
+     */
+    public long getQueuedBytes() {
+        return queuedBytes.sum();
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.sum();
+    }
+
+    /**
+     * @return the number of queued frames replaced by a newer frame with the same key
+     */
+    public long getCoalescedFrames() {
+        return coalescedFrames.sum();
+    }
+
+    public long getSlowConsumerDisconnections() {
+        return slowConsumerDisconnections.sum();
+    }
+}
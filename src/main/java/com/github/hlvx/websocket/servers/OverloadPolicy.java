@@ -0,0 +1,15 @@
+package com.github.hlvx.websocket.servers;
+
+/**
+ * What the server does with a request when the resource it needs is exhausted.
+ */
+public enum OverloadPolicy {
+    /**
+     * Accept the request and stop reading from the socket until the resource recovers.
+     */
+    PAUSE,
+    /**
+     * Drop the request and answer with the server's error frame.
+     */
+    REJECT
+}
@@ -0,0 +1,37 @@
+package com.github.hlvx.websocket.servers;
+
+/**
+ * Lets clients keep several requests in flight on one connection, told apart by the correlation
+ * ids readers extract and writers echo back.
+ * <p>
+ * Once a connection has {@link #getMaxInFlight()} requests waiting for their response, the server
+ * stops reading from it until half of them are answered.
+ */
+public class PipeliningOptions {
+    public static final int DEFAULT_MAX_IN_FLIGHT = 32;
+
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private boolean ordered = true;
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public PipeliningOptions setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    /**
+     * @return true if responses are sent in the order requests were received, false if they are
+     * sent as soon as they are ready
+     */
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    public PipeliningOptions setOrdered(boolean ordered) {
+        this.ordered = ordered;
+        return this;
+    }
+}
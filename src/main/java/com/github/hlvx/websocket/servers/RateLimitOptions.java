@@ -0,0 +1,63 @@
+package com.github.hlvx.websocket.servers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A rate of commands a connection is allowed to send, for instance 100 per second with bursts
+ * of 20. Commands over the rate are handled according to the {@link OverloadPolicy}:
+ * {@link OverloadPolicy#PAUSE} runs them and stops reading from the connection until it is back
+ * under the rate, {@link OverloadPolicy#REJECT} answers them with the error frame of the server.
+ */
+public class RateLimitOptions {
+    private final int permits;
+    private final long period;
+    private final TimeUnit unit;
+    private int burst;
+    private OverloadPolicy overloadPolicy = OverloadPolicy.REJECT;
+
+    /**
+     * @param permits how many commands a connection can run per period
+     */
+    public RateLimitOptions(int permits, long period, TimeUnit unit) {
+        if (permits < 1) throw new IllegalArgumentException("permits must be > 0");
+        if (period < 1) throw new IllegalArgumentException("period must be > 0");
+        this.permits = permits;
+        this.period = period;
+        this.unit = unit;
+        burst = permits;
+    }
+
+    public int getPermits() {
+        return permits;
+    }
+
+    public long getPeriod() {
+        return period;
+    }
+
+    public TimeUnit getUnit() {
+        return unit;
+    }
+
+    /**
+     * @return how many commands a connection can run at once after being idle
+     */
+    public int getBurst() {
+        return burst;
+    }
+
+    public RateLimitOptions setBurst(int burst) {
+        if (burst < 1) throw new IllegalArgumentException("burst must be > 0");
+        this.burst = burst;
+        return this;
+    }
+
+    public OverloadPolicy getOverloadPolicy() {
+        return overloadPolicy;
+    }
+
+    public RateLimitOptions setOverloadPolicy(OverloadPolicy overloadPolicy) {
+        this.overloadPolicy = overloadPolicy;
+        return this;
+    }
+}
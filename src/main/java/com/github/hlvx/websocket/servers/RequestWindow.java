@@ -0,0 +1,190 @@
+package com.github.hlvx.websocket.servers;
+
+import com.github.hlvx.websocket.io.SharedFrame;
+import com.github.hlvx.websocket.models.WebSocketContext;
+
+import java.util.ArrayDeque;
+
+/**
+ * Requests of one connection waiting for their response, see {@link PipeliningOptions}.
+ * <p>
+ * Pausing a Vert.x WebSocket stops reading from the network, but frames already read keep coming,
+ * so messages arriving while the window is full are deferred and dispatched in order as
+ * responses free places.
+ * <p>
+ * In ordered mode a response that is ready before the ones of earlier requests is held until
+ * they are sent. Requests that fail without a response release their place without sending
+ * anything.
+ */
+public class RequestWindow {
+    private final WebSocketContext connection;
+    private final int maxInFlight;
+    private final int resumeThreshold;
+    private final ArrayDeque<Slot> slots;
+    // Only allocated once the window of the connection was full
+    private ArrayDeque<Runnable> deferred;
+    private int inFlight;
+    private boolean paused;
+    private boolean draining;
+    private boolean closed;
+
+    public RequestWindow(WebSocketContext connection, PipeliningOptions options) {
+        this.connection = connection;
+        maxInFlight = Math.max(options.getMaxInFlight(), 1);
+        resumeThreshold = maxInFlight / 2;
+        slots = options.isOrdered() ? new ArrayDeque<>() : null;
+    }
+
+    /**
+     * Keeps a message for later if the window is full or earlier messages are still waiting.
+     * @return false if the message can be handled now
+     */
+    public synchronized boolean defer(Runnable message) {
+        if (closed) return true;
+        if (inFlight < maxInFlight && !hasQueued()) return false;
+        if (deferred == null) deferred = new ArrayDeque<>();
+        deferred.add(message);
+        if (!paused) {
+            paused = true;
+            connection.pauseReads();
+        }
+        return true;
+    }
+
+    /**
+     * Takes a place for a request, in the order requests are read.
+     */
+    public synchronized Slot begin() {
+        Slot slot = new Slot();
+        if (slots != null) slots.add(slot);
+        if (++inFlight >= maxInFlight && !paused) {
+            paused = true;
+            connection.pauseReads();
+        }
+        return slot;
+    }
+
+    /**
+     * Sends a part of the response of a request that is not complete yet, such as a batch flushed
+     * before its last response. In ordered mode the part waits for the responses of earlier
+     * requests.
+     */
+    public synchronized void write(Slot slot, SharedFrame frame) {
+        if (slot.done || closed) return;
+        if (slots == null || slots.peek() == slot) connection.write(frame, null);
+        else slot.queue(frame);
+    }
+
+    /**
+     * Sends the response of a request, or only releases its place if frame is null.
+     */
+    public synchronized void complete(Slot slot, SharedFrame frame) {
+        if (slot.done) return;
+        slot.done = true;
+        if (slots == null) {
+            if (frame != null && !closed) connection.write(frame, null);
+        } else {
+            if (frame != null && !closed) slot.queue(frame);
+            Slot head;
+            while ((head = slots.peek()) != null && head.done) {
+                slots.poll();
+                head.flush(connection);
+            }
+        }
+        --inFlight;
+        if (hasQueued() && !draining && !closed) {
+            draining = true;
+            runOnContext(this::drain);
+        }
+        resumeIfDrained();
+    }
+
+    /**
+     * Dispatches deferred messages one per event loop task, so a failing message does not stop
+     * the next ones.
+     */
+    private void drain() {
+        Runnable next;
+        synchronized (this) {
+            if (closed || inFlight >= maxInFlight || !hasQueued()) {
+                draining = false;
+                resumeIfDrained();
+                return;
+            }
+            next = deferred.poll();
+        }
+        runOnContext(this::drain);
+        next.run();
+    }
+
+    private void runOnContext(Runnable task) {
+        if (connection.getContext() != null) connection.getContext().runOnContext(v -> task.run());
+        else task.run();
+    }
+
+    private void resumeIfDrained() {
+        if (paused && inFlight <= resumeThreshold && !hasQueued()) {
+            paused = false;
+            connection.resumeReads();
+        }
+    }
+
+    private boolean hasQueued() {
+        return deferred != null && !deferred.isEmpty();
+    }
+
+    /**
+     * @return true while messages read from the connection wait for a place in the window or are
+     * being dispatched from it
+     */
+    public synchronized boolean hasDeferred() {
+        return hasQueued() || draining;
+    }
+
+    public boolean isOrdered() {
+        return slots != null;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Releases the responses waiting for earlier ones, nothing is sent after this.
+     */
+    public synchronized void close() {
+        closed = true;
+        deferred = null;
+        if (slots == null) return;
+        for (Slot slot : slots) slot.release();
+        slots.clear();
+    }
+
+    public static final class Slot {
+        private boolean done;
+        // Only allocated once a frame waits for earlier responses
+        private ArrayDeque<SharedFrame> frames;
+
+        private Slot() {}
+
+        private void queue(SharedFrame frame) {
+            if (frames == null) frames = new ArrayDeque<>(2);
+            frames.add(frame.retain());
+        }
+
+        private void flush(WebSocketContext connection) {
+            if (frames == null) return;
+            for (SharedFrame frame : frames) {
+                connection.write(frame, null);
+                frame.release();
+            }
+            frames = null;
+        }
+
+        private void release() {
+            if (frames == null) return;
+            for (SharedFrame frame : frames) frame.release();
+            frames = null;
+        }
+    }
+}
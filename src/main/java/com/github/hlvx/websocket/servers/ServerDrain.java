@@ -0,0 +1,84 @@
+package com.github.hlvx.websocket.servers;
+
+import com.github.hlvx.websocket.models.WebSocketContext;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The steps of {@link WebSocketServer#stop(DrainOptions)} once upgrades are refused: stop reading
+ * the connections, wait for the commands in flight and the messages deferred by request windows,
+ * close the connections in batches after their queued responses, wait for them to be closed.
+ */
+final class ServerDrain {
+    private static final long POLL_INTERVAL = 10;
+    private static final String CLOSE_REASON = "Server stopping";
+
+    private final WebSocketServer server;
+    private final DrainOptions options;
+    private final Vertx vertx;
+    private final Promise<Void> drained;
+
+    ServerDrain(WebSocketServer server, DrainOptions options, Promise<Void> drained) {
+        this.server = server;
+        this.options = options;
+        this.vertx = server.getVertx();
+        this.drained = drained;
+    }
+
+    void start() {
+        for (WebSocketContext context : server.getConnections()) context.pauseReads();
+        await(this::idle, v -> closeConnections());
+    }
+
+    /**
+     * @return true once no command runs and no message that was read waits in a request window
+     */
+    private boolean idle() {
+        if (server.getCommandsInFlight() != 0) return false;
+        for (WebSocketContext context : server.getConnections()) {
+            RequestWindow window = context.getRequestWindow();
+            if (window != null && window.hasDeferred()) return false;
+        }
+        return true;
+    }
+
+    private void closeConnections() {
+        List<WebSocketContext> connections = new ArrayList<>(server.getConnections());
+        if (connections.isEmpty()) {
+            drained.complete();
+            return;
+        }
+        int[] next = {0};
+        vertx.setPeriodic(options.getCloseInterval(), id -> {
+            int end = Math.min(next[0] + options.getCloseBatchSize(), connections.size());
+            for (; next[0] < end; ++next[0]) {
+                // After the responses still queued for slow readers
+                connections.get(next[0]).close(options.getCloseStatus(), CLOSE_REASON);
+            }
+            if (end < connections.size()) return;
+            vertx.cancelTimer(id);
+            await(() -> server.getConnections().isEmpty(), v -> drained.complete());
+        });
+    }
+
+    /**
+     * Calls next once condition is true, or once the timeout of the options elapsed.
+     */
+    private void await(BooleanSupplier condition, Handler<Void> next) {
+        if (condition.getAsBoolean()) {
+            next.handle(null);
+            return;
+        }
+        long deadline = System.nanoTime() + options.getTimeout() * 1_000_000;
+        vertx.setPeriodic(POLL_INTERVAL, id -> {
+            if (!condition.getAsBoolean() && System.nanoTime() - deadline < 0) return;
+            vertx.cancelTimer(id);
+            next.handle(null);
+        });
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.hlvx.websocket.servers;
+
+import com.github.hlvx.websocket.models.Command;
+
+import java.util.Map;
+
+/**
+ * Immutable lookup table of text commands.
+ * <p>
+ * The table is built with a seed chosen so that every command name lands in its own slot, so a
+ * lookup is one hash, one slot and one {@link String#equals} with no probing. Names with the same
+ * {@link String#hashCode()} share a slot whatever the seed: when no seed is found within a few
+ * capacities, the table falls back to linear probing.
+ */
+final class TextCommandTable {
+    static final TextCommandTable EMPTY = new TextCommandTable(new String[1], new Command[1], 0);
+
+    private static final int SEED_ATTEMPTS = 64;
+    // How many times the capacity is doubled looking for a seed
+    private static final int CAPACITY_DOUBLINGS = 3;
+
+    private final String[] names;
+    private final Command[] commands;
+    private final int seed;
+    private final boolean probing;
+
+    private TextCommandTable(String[] names, Command[] commands, int seed) {
+        this(names, commands, seed, false);
+    }
+
+    private TextCommandTable(String[] names, Command[] commands, int seed, boolean probing) {
+        this.names = names;
+        this.commands = commands;
+        this.seed = seed;
+        this.probing = probing;
+    }
+
+    static TextCommandTable of(Map<String, Command> commands) {
+        if (commands.isEmpty()) return EMPTY;
+        int minCapacity = Integer.highestOneBit(commands.size() * 2 - 1) << 1;
+        for (int capacity = minCapacity; capacity <= minCapacity << CAPACITY_DOUBLINGS; capacity <<= 1) {
+            for (int attempt = 0; attempt < SEED_ATTEMPTS; ++attempt) {
+                int seed = attempt * 0x61C88647;
+                TextCommandTable table = tryBuild(commands, capacity, seed);
+                if (table != null) return table;
+            }
+        }
+        return buildProbing(commands, minCapacity);
+    }
+
+    private static TextCommandTable tryBuild(Map<String, Command> commands, int capacity, int seed) {
+        String[] names = new String[capacity];
+        Command[] table = new Command[capacity];
+        for (Map.Entry<String, Command> entry : commands.entrySet()) {
+            int i = index(entry.getKey(), seed, capacity - 1);
+            if (names[i] != null) return null;
+            names[i] = entry.getKey();
+            table[i] = entry.getValue();
+        }
+        return new TextCommandTable(names, table, seed);
+    }
+
+    /**
+     * @param capacity at least twice the number of commands, so that probing always ends on an
+     *                 empty slot
+     */
+    private static TextCommandTable buildProbing(Map<String, Command> commands, int capacity) {
+        String[] names = new String[capacity];
+        Command[] table = new Command[capacity];
+        for (Map.Entry<String, Command> entry : commands.entrySet()) {
+            int i = index(entry.getKey(), 0, capacity - 1);
+            while (names[i] != null) i = (i + 1) & (capacity - 1);
+            names[i] = entry.getKey();
+            table[i] = entry.getValue();
+        }
+        return new TextCommandTable(names, table, 0, true);
+    }
+
+    Command get(String name) {
+        int mask = names.length - 1;
+        int i = index(name, seed, mask);
+        if (!probing) return name.equals(names[i]) ? commands[i] : null;
+        for (; names[i] != null; i = (i + 1) & mask)
+            if (name.equals(names[i])) return commands[i];
+        return null;
+    }
+
+    Command get(Object name) {
+        return name instanceof String ? get((String) name) : null;
+    }
+
+    private static int index(String name, int seed, int mask) {
+        int h = (name.hashCode() ^ seed) * 0x9E3779B9;
+        return (h ^ (h >>> 15)) & mask;
+    }
+}
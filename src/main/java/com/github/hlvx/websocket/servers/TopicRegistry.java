@@ -0,0 +1,118 @@
+package com.github.hlvx.websocket.servers;
+
+import com.github.hlvx.websocket.io.SharedFrame;
+import com.github.hlvx.websocket.models.WebSocketContext;
+import io.vertx.core.Context;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Subscribers of every topic, grouped by the event loop of their connection so a publication
+ * costs one task per event loop rather than one per subscriber.
+ */
+public class TopicRegistry {
+    private final Map<String, Map<Object, Set<WebSocketContext>>> topics = new ConcurrentHashMap<>();
+    private volatile Listener listener;
+
+    /**
+     * @return true if the connection was not already subscribed
+     */
+    public boolean subscribe(String topic, WebSocketContext subscriber) {
+        boolean[] added = new boolean[2];
+        topics.compute(topic, (name, groups) -> {
+            if (groups == null) {
+                groups = new ConcurrentHashMap<>();
+                added[1] = true;
+            }
+            added[0] = groups.computeIfAbsent(groupKey(subscriber), key -> ConcurrentHashMap.newKeySet())
+                    .add(subscriber);
+            return groups;
+        });
+        Listener listener = this.listener;
+        if (added[1] && listener != null) listener.topicAdded(topic);
+        return added[0];
+    }
+
+    /**
+     * @return true if the connection was subscribed
+     */
+    public boolean unsubscribe(String topic, WebSocketContext subscriber) {
+        boolean[] removed = new boolean[2];
+        topics.computeIfPresent(topic, (name, groups) -> {
+            Object key = groupKey(subscriber);
+            Set<WebSocketContext> group = groups.get(key);
+            if (group != null) {
+                removed[0] = group.remove(subscriber);
+                if (group.isEmpty()) groups.remove(key);
+            }
+            removed[1] = groups.isEmpty();
+            return removed[1] ? null : groups;
+        });
+        Listener listener = this.listener;
+        if (removed[1] && listener != null) listener.topicRemoved(topic);
+        return removed[0];
+    }
+
+    void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public boolean hasSubscribers(String topic) {
+        return topics.containsKey(topic);
+    }
+
+    public Set<String> getTopics() {
+        return topics.keySet();
+    }
+
+    /**
+     * Writes the frame to every subscriber of the topic, from the event loop of each one.
+     * The caller keeps its own reference to the frame.
+     * @param coalesceKey if not null, replaces frames with an equal key still queued for a subscriber
+     */
+    public void publish(String topic, SharedFrame frame, Object coalesceKey) {
+        Map<Object, Set<WebSocketContext>> groups = topics.get(topic);
+        if (groups == null) return;
+        for (Map.Entry<Object, Set<WebSocketContext>> group : groups.entrySet()) {
+            Set<WebSocketContext> subscribers = group.getValue();
+            if (!(group.getKey() instanceof Context)) {
+                write(subscribers, frame, coalesceKey);
+                continue;
+            }
+            frame.retain();
+            ((Context) group.getKey()).runOnContext(v -> {
+                try {
+                    write(subscribers, frame, coalesceKey);
+                } finally {
+                    frame.release();
+                }
+            });
+        }
+    }
+
+    private static void write(Set<WebSocketContext> subscribers, SharedFrame frame, Object coalesceKey) {
+        for (WebSocketContext subscriber : subscribers) {
+            try {
+                subscriber.write(frame, coalesceKey);
+            } catch (IllegalStateException ex) {
+                // Closed while the publication was in flight, its close handler unsubscribes it
+            }
+        }
+    }
+
+    private static Object groupKey(WebSocketContext subscriber) {
+        Context context = subscriber.getContext();
+        return context != null ? context : TopicRegistry.class;
+    }
+
+    /**
+     * Notified when a topic gets its first subscriber or loses its last one.
+     */
+    interface Listener {
+        void topicAdded(String topic);
+
+        void topicRemoved(String topic);
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.hlvx.websocket.servers;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs each blocking command on a virtual thread of its own, and its result handler back on the
+ * event loop of the connection.
+ * <p>
+ * Virtual threads are looked up reflectively as the library is built for Java 8, see
+ * {@link #create(String)}.
+ */
+class VirtualThreadExecutor {
+    private final ExecutorService executor;
+
+    private VirtualThreadExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @param namePrefix the name of the threads, followed by a counter
+     * @return null if the JVM has no virtual threads, before Java 21 or on Java 19 and 20 without
+     * preview features
+     */
+    static VirtualThreadExecutor create(String namePrefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return new VirtualThreadExecutor((ExecutorService) Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory));
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * @param context where resultHandler is called
+     * @return false if the executor was closed, resultHandler is then never called
+     */
+    <T> boolean execute(Context context, Handler<Promise<T>> task, Handler<AsyncResult<T>> resultHandler) {
+        Promise<T> promise = Promise.promise();
+        promise.future().setHandler(result -> context.runOnContext(v -> resultHandler.handle(result)));
+        try {
+            executor.execute(() -> task.handle(promise));
+            return true;
+        } catch (RejectedExecutionException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Lets running commands complete, and refuses new ones.
+     */
+    void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.hlvx.websocket.servers;
+
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.compression.ZlibCodecFactory;
+import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilter;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilterProvider;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandler;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateServerExtensionHandshaker;
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpConnection;
+import io.vertx.core.net.impl.ConnectionBase;
+
+/**
+ * Installs permessage-deflate on the connections of an HTTP server.
+ * <p>
+ * Vert.x 3.8 appends its extension handler after the handler of requests, where it never sees the
+ * upgrade request and compression is never negotiated. This one is inserted before it, and leaves
+ * frames smaller than {@link WebSocketServerOptions#getCompressionThreshold()} uncompressed.
+ */
+final class WebSocketCompression implements Handler<HttpConnection> {
+    private static final String REQUEST_HANDLER = "handler";
+    private static final String EXTENSION_HANDLER = "websocketExtensionHandler";
+
+    private final PerMessageDeflateServerExtensionHandshaker handshaker;
+
+    WebSocketCompression(WebSocketServerOptions options) {
+        int threshold = options.getCompressionThreshold();
+        // Fragments of a message are compressed or not with its first frame
+        WebSocketExtensionFilter encoderFilter = frame -> !(frame instanceof ContinuationWebSocketFrame)
+                && frame.content().readableBytes() < threshold;
+        WebSocketExtensionFilterProvider filters = new WebSocketExtensionFilterProvider() {
+            @Override
+            public WebSocketExtensionFilter encoderFilter() {
+                return encoderFilter;
+            }
+
+            @Override
+            public WebSocketExtensionFilter decoderFilter() {
+                return WebSocketExtensionFilter.NEVER_SKIP;
+            }
+        };
+        handshaker = new PerMessageDeflateServerExtensionHandshaker(options.getCompressionLevel(),
+                ZlibCodecFactory.isSupportingWindowSizeAndMemLevel(), options.getClientMaxWindowBits(),
+                options.isServerNoContextTakeover(), options.isClientNoContextTakeover(), filters);
+    }
+
+    @Override
+    public void handle(HttpConnection connection) {
+        if (!(connection instanceof ConnectionBase)) return;
+        ChannelPipeline pipeline = ((ConnectionBase) connection).channelHandlerContext().pipeline();
+        if (pipeline.get(REQUEST_HANDLER) == null) return;
+        if (pipeline.get(EXTENSION_HANDLER) != null) pipeline.remove(EXTENSION_HANDLER);
+        pipeline.addBefore(REQUEST_HANDLER, EXTENSION_HANDLER, new WebSocketServerExtensionHandler(handshaker));
+    }
+}
@@ -3,206 +3,1022 @@ package com.github.hlvx.websocket.servers;
 import com.github.hlvx.websocket.annotations.BinaryCommand;
 import com.github.hlvx.websocket.annotations.Context;
 import com.github.hlvx.websocket.annotations.PermissionsAllowed;
+import com.github.hlvx.websocket.annotations.RateLimit;
 import com.github.hlvx.websocket.annotations.TextCommand;
 import com.github.hlvx.websocket.exceptions.BadPermissionsException;
 import com.github.hlvx.websocket.exceptions.CommandNotRegisteredException;
-import com.github.hlvx.websocket.io.readers.JsonReader;
+import com.github.hlvx.websocket.exceptions.CommandRejectedException;
+import com.github.hlvx.websocket.exceptions.RateLimitExceededException;
+import com.github.hlvx.websocket.io.SharedFrame;
 import com.github.hlvx.websocket.io.readers.Reader;
 import com.github.hlvx.websocket.io.readers.SimpleBinaryReader;
+import com.github.hlvx.websocket.io.readers.StreamingJsonReader;
 import com.github.hlvx.websocket.io.writers.JsonWriter;
 import com.github.hlvx.websocket.io.writers.SimpleBinaryWriter;
 import com.github.hlvx.websocket.io.writers.Writer;
+import com.github.hlvx.websocket.metrics.CommandMetrics;
+import com.github.hlvx.websocket.metrics.WebSocketMetrics;
 import com.github.hlvx.websocket.models.Command;
+import com.github.hlvx.websocket.models.CommandBatch;
 import com.github.hlvx.websocket.models.CommandData;
+import com.github.hlvx.websocket.models.Payload;
+import com.github.hlvx.websocket.models.RateLimiter;
 import com.github.hlvx.websocket.models.RequestContext;
+import com.github.hlvx.websocket.models.ResponseCache;
 import com.github.hlvx.websocket.models.WebSocketContext;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.concurrent.EventExecutor;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpServer;
 import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.impl.VertxInternal;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import io.vertx.ext.auth.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class WebSocketServer {
+    public static final long DEFAULT_AUTHORIZATION_CACHE_TTL = 60_000;
+    public static final long DEFAULT_BATCH_LINGER = 5;
+
     private Logger LOGGER = LoggerFactory.getLogger(WebSocketServer.class);
     private Map<ServerWebSocket, WebSocketContext> contexts = new ConcurrentHashMap<>();
-    private Map<String, Command> textCommandHandlers = new HashMap<>();
-    private Map<Integer, Command> binaryCommandHandlers = new HashMap<>();
+    // Commands and lookup tables in one snapshot, replaced under the lock of the server so that
+    // event loops read them through this single volatile field without locking
+    private volatile CommandRegistry commands = CommandRegistry.EMPTY;
     private BiConsumer<ServerWebSocket, Handler<AsyncResult<Integer>>> handshakeHandler;
     private Handler<ServerWebSocket> connectHandler;
     private Handler<ServerWebSocket> disconnectHandler;
-    private Reader<String> textReader = new JsonReader("type");
+    private Reader<String> textReader = new StreamingJsonReader("type");
     private Reader<Buffer> binaryReader = new SimpleBinaryReader();
     private Writer textWriter = new JsonWriter();
     private Writer binaryWriter = new SimpleBinaryWriter();
+    private final Map<String, CommandWorkerPool> workerPools = new ConcurrentHashMap<>();
+    private final TopicRegistry topics = new TopicRegistry();
+    private volatile ClusterBroadcast clusterBroadcast;
+    private volatile VirtualThreadExecutor virtualThreads;
+    private final OutboundStats outboundStats = new OutboundStats();
+    private OutboundPolicy outboundPolicy;
+    private final Authorizer authorizer = new Authorizer(DEFAULT_AUTHORIZATION_CACHE_TTL);
+    private BiFunction<RequestContext, Throwable, Object> errorFrameProvider;
+    private volatile WebSocketMetrics metrics = WebSocketMetrics.NOOP;
+    private volatile boolean metricsEnabled;
+    private PipeliningOptions pipeliningOptions;
+    private volatile long batchLinger = DEFAULT_BATCH_LINGER;
+    private RateLimitOptions connectionRateLimit;
+    private volatile RateLimiter connectionRateLimiter;
+    // 0 is the index of the connection limiter
+    private volatile int rateLimiters = 1;
+    // By command, so that a new version of a command keeps the buckets of the connections
+    private final Map<String, Integer> rateLimiterIndexes = new HashMap<>();
+    private volatile HeartbeatOptions heartbeatOptions;
+    private final Map<io.vertx.core.Context, HeartbeatWheel> heartbeats = new ConcurrentHashMap<>();
+    private final LongAdder commandsInFlight = new LongAdder();
+    private final List<HttpServer> httpServers = new CopyOnWriteArrayList<>();
+    private final List<String> deployments = new CopyOnWriteArrayList<>();
+    private volatile boolean stopping;
+    private Future<Void> stopped;
+    private WebSocketServerOptions options = new WebSocketServerOptions();
+    private volatile Vertx vertx;
+
+    public WebSocketServer() {}
+
+    /**
+     * @param vertx the Vert.x instance used for the HTTP servers and for blocking commands
+     */
+    public WebSocketServer(Vertx vertx) {
+        this.vertx = vertx;
+    }
 
-    public void addServices(Object...services) {
+    /**
+     * Registers the commands of services, replacing registered commands of the same name. Lookup
+     * tables are rebuilt once all the services are read, so register services together when
+     * possible. Can be called while the server runs: requests see either all the new commands or
+     * none of them, and requests already dispatched complete on the commands they were given.
+     */
+    public synchronized void addServices(Object...services) {
+        Map<String, Command> textCommandHandlers = new HashMap<>(commands.getTextCommands());
+        Map<Integer, Command> binaryCommandHandlers = new HashMap<>(commands.getBinaryCommands());
         for (Object service : services) {
-            Set<String> servicePermissions;
-            PermissionsAllowed permissions = service.getClass().getAnnotation(PermissionsAllowed.class);
-            if (permissions != null) servicePermissions = Arrays.stream(permissions.permissions())
-                    .collect(Collectors.toSet());
-            else servicePermissions = Collections.EMPTY_SET;
+            Set<String> servicePermissions = permissionsOf(service.getClass().getAnnotation(PermissionsAllowed.class));
+            RateLimit serviceRateLimit = service.getClass().getAnnotation(RateLimit.class);
             for (Method method : service.getClass().getMethods()) {
-                Set<String> methodPermissions;
-                permissions = service.getClass().getAnnotation(PermissionsAllowed.class);
-                if (permissions != null) methodPermissions = Arrays.stream(permissions.permissions())
-                        .collect(Collectors.toSet());
-                else methodPermissions = Collections.EMPTY_SET;
-                methodPermissions.addAll(servicePermissions);
-
                 BinaryCommand binaryCommand = method.getAnnotation(BinaryCommand.class);
+                TextCommand textCommand = method.getAnnotation(TextCommand.class);
+                if (binaryCommand == null && textCommand == null) continue;
+
+                Set<String> methodPermissions = new HashSet<>(servicePermissions);
+                methodPermissions.addAll(permissionsOf(method.getAnnotation(PermissionsAllowed.class)));
+                Command command = new Command(service, method, methodPermissions,
+                        authorizer.register(methodPermissions));
+                RateLimit rateLimit = method.getAnnotation(RateLimit.class);
+                if (rateLimit == null) rateLimit = serviceRateLimit;
+                if (rateLimit != null) {
+                    String key = binaryCommand != null
+                            ? "binary:" + binaryCommand.commandId() : "text:" + textCommand.command();
+                    int index = rateLimiterIndexes.computeIfAbsent(key, k -> rateLimiters++);
+                    command.setRateLimiter(new RateLimiter(index, rateLimitOptionsOf(rateLimit)));
+                }
                 if (binaryCommand != null) {
                     LOGGER.info("Registered {} as a BinaryCommand", method);
-                    binaryCommandHandlers.put(binaryCommand.commandId(),
-                            new Command(service, method, methodPermissions));
+                    command.setMetrics(metrics.command(String.valueOf(binaryCommand.commandId()), true));
+                    binaryCommandHandlers.put(binaryCommand.commandId(), command);
+                    prepare(command, binaryReader, binaryWriter);
                 } else {
                     LOGGER.info("Registered {} as a TextCommand", method);
-                    TextCommand textCommand = method.getAnnotation(TextCommand.class);
-                    if (textCommand != null) textCommandHandlers.put(textCommand.command(),
-                            new Command(service, method, methodPermissions));
+                    command.setMetrics(metrics.command(textCommand.command(), false));
+                    textCommandHandlers.put(textCommand.command(), command);
+                    prepare(command, textReader, textWriter);
                 }
             }
         }
+        commands = new CommandRegistry(textCommandHandlers, binaryCommandHandlers);
+    }
+
+    /**
+     * Unregisters the commands of services, for instance before adding their new version.
+     */
+    public synchronized void removeServices(Object...services) {
+        Set<Object> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        removed.addAll(Arrays.asList(services));
+        Map<String, Command> textCommandHandlers = new HashMap<>(commands.getTextCommands());
+        Map<Integer, Command> binaryCommandHandlers = new HashMap<>(commands.getBinaryCommands());
+        textCommandHandlers.values().removeIf(command -> removed.contains(command.getParent()));
+        binaryCommandHandlers.values().removeIf(command -> removed.contains(command.getParent()));
+        commands = new CommandRegistry(textCommandHandlers, binaryCommandHandlers);
+    }
+
+    private static void prepare(Command command, Reader<?> reader, Writer writer) {
+        reader.prepare(command.getDataType());
+        if (command.getResponseType() != null) writer.prepare(command.getResponseType());
+    }
+
+    private static RateLimitOptions rateLimitOptionsOf(RateLimit rateLimit) {
+        return new RateLimitOptions(rateLimit.permits(), rateLimit.period(), rateLimit.unit())
+                .setBurst(rateLimit.burst() > 0 ? rateLimit.burst() : rateLimit.permits())
+                .setOverloadPolicy(rateLimit.policy());
+    }
+
+    private static Set<String> permissionsOf(PermissionsAllowed permissions) {
+        if (permissions == null) return Collections.emptySet();
+        return Arrays.stream(permissions.permissions()).collect(Collectors.toSet());
+    }
+
+    /**
+     * Registers a worker pool that commands annotated with
+     * {@link com.github.hlvx.websocket.annotations.Worker} can run on.
+     */
+    public void addWorkerPool(WorkerPoolOptions options) {
+        workerPools.put(options.getName(), new CommandWorkerPool(getVertx(), options));
     }
 
     public void start(int port, Handler<AsyncResult<HttpServer>> handler) {
-        Vertx.vertx().createHttpServer()
+        HttpServer server = createHttpServer(getVertx());
+        httpServers.add(server);
+        server.listen(port, handler);
+    }
+
+    public Future<Void> stop() {
+        return stop(new DrainOptions());
+    }
+
+    /**
+     * Stops the servers started and deployed by this server without dropping requests: upgrade
+     * requests are refused with a 503 and connections are no longer read, commands in flight
+     * complete, then connections are closed in batches and the HTTP servers closed.
+     * @return completed once the HTTP servers are closed, the same future while a stop is running
+     */
+    public synchronized Future<Void> stop(DrainOptions options) {
+        if (stopped != null) return stopped;
+        stopping = true;
+        Promise<Void> drained = Promise.promise();
+        Promise<Void> promise = Promise.promise();
+        stopped = promise.future();
+        drained.future().setHandler(v -> closeServers(promise));
+        new ServerDrain(this, options, drained).start();
+        return stopped;
+    }
+
+    private void closeServers(Promise<Void> promise) {
+        List<Future> closed = new ArrayList<>();
+        for (HttpServer server : httpServers) {
+            Promise<Void> serverClosed = Promise.promise();
+            server.close(serverClosed);
+            closed.add(serverClosed.future());
+        }
+        for (String deployment : deployments) {
+            Promise<Void> undeployed = Promise.promise();
+            getVertx().undeploy(deployment, undeployed);
+            closed.add(undeployed.future());
+        }
+        httpServers.clear();
+        deployments.clear();
+        CompositeFuture.all(closed).setHandler(result -> {
+            synchronized (this) {
+                stopping = false;
+                stopped = null;
+            }
+            if (result.succeeded()) promise.complete();
+            else promise.fail(result.cause());
+        });
+    }
+
+    /**
+     * @return the open connections
+     */
+    Collection<WebSocketContext> getConnections() {
+        return contexts.values();
+    }
+
+    /**
+     * @return the commands dispatched that did not complete yet
+     */
+    long getCommandsInFlight() {
+        return commandsInFlight.sum();
+    }
+
+    /**
+     * Deploys {@code instances} {@link WebSocketServerVerticle}s listening on the same port.
+     * Vert.x balances connections between them, so each instance runs on its own event loop
+     * while sharing the commands registered on this server.
+     * Services must be added before calling this method.
+     */
+    public void deploy(int port, int instances, Handler<AsyncResult<String>> handler) {
+        getVertx().deployVerticle(() -> new WebSocketServerVerticle(this, port),
+                new DeploymentOptions().setInstances(instances), result -> {
+                    if (result.succeeded()) deployments.add(result.result());
+                    if (handler != null) handler.handle(result);
+                });
+    }
+
+    /**
+     * Deploys one {@link WebSocketServerVerticle} per event loop.
+     */
+    public void deploy(int port, Handler<AsyncResult<String>> handler) {
+        deploy(port, eventLoops(getVertx()), handler);
+    }
+
+    private static int eventLoops(Vertx vertx) {
+        if (!(vertx instanceof VertxInternal)) return VertxOptions.DEFAULT_EVENT_LOOP_POOL_SIZE;
+        int eventLoops = 0;
+        for (EventExecutor ignored : ((VertxInternal) vertx).getEventLoopGroup()) eventLoops++;
+        return eventLoops;
+    }
+
+    /**
+     * Uses the Vert.x instance of a verticle deployed by the caller when the server was created
+     * without one, so that blocking commands, timers and worker pools share it.
+     */
+    synchronized void bindVertx(Vertx vertx) {
+        if (this.vertx == null) this.vertx = vertx;
+    }
+
+    HttpServer createHttpServer(Vertx vertx) {
+        HttpServer server = vertx.createHttpServer(options.toHttpServerOptions());
+        if (options.isCompressionSupported()) server.connectionHandler(new WebSocketCompression(options));
+        return server
                 .websocketHandler(serverWebSocket -> {
+                    if (stopping) {
+                        serverWebSocket.reject(503);
+                        return;
+                    }
                     if (connectHandler != null) connectHandler.handle(serverWebSocket);
-                    Promise<Integer> promise = Promise.promise();
-                    serverWebSocket.setHandshake(promise);
-                    if (handshakeHandler != null) handshakeHandler.accept(serverWebSocket, promise);
-                    else promise.complete(101);
-                    contexts.put(serverWebSocket, new WebSocketContext(this, serverWebSocket));
-
-                    serverWebSocket.closeHandler(v -> {
-                        contexts.remove(serverWebSocket);
-                        if (disconnectHandler != null) disconnectHandler.handle(serverWebSocket);
-                    });
-                    serverWebSocket.textMessageHandler(txt -> handleTextMessage(serverWebSocket, txt));
-                    serverWebSocket.binaryMessageHandler(buffer -> handleBinaryMessage(serverWebSocket, buffer));
-                }).listen(port, handler);
-    }
-
-    private void handleBinaryMessage(ServerWebSocket client, Buffer buffer) {
-        messageHandle(new RequestContext(contexts.get(client), buffer, binaryWriter, binaryReader),
-                binaryCommandHandlers,
-                ((websocket, data) -> {
-            websocket.writeBinaryMessage(data);
-        }));
-    }
-
-    private void handleTextMessage(ServerWebSocket client, String text) {
-        messageHandle(new RequestContext(contexts.get(client), Buffer.buffer(text), textWriter, textReader),
-                textCommandHandlers,
-                ((websocket, data) -> {
-            websocket.writeTextMessage(data.toString());
-        }));
-    }
-
-    private CompletableFuture<Boolean> checkPermissions(Command command, RequestContext requestContext) {
-        User user = requestContext.getWebSocketContext().getUser();
-        if (!command.getPermissions().isEmpty() && user == null)
-            throw new BadPermissionsException("User not set.");
-        CompletableFuture<Boolean> resultFuture = new CompletableFuture<>();
-        if (!command.getPermissions().isEmpty()) {
-            CompletableFuture<Boolean>[] futures = new CompletableFuture[command.getPermissions().size()];
-            int i = 0;
-            for (String perm : command.getPermissions()) {
-                CompletableFuture<Boolean> future = new CompletableFuture();
-                futures[i++] = future;
-                user.isAuthorized(perm, authorizedResult -> {
-                    if (authorizedResult.succeeded()) future.complete(authorizedResult.result());
-                    else future.completeExceptionally(authorizedResult.cause());
+                    // Without a handshake handler, Vert.x accepts the connection once this returns
+                    if (handshakeHandler != null) {
+                        Promise<Integer> promise = Promise.promise();
+                        serverWebSocket.setHandshake(promise);
+                        handshakeHandler.accept(serverWebSocket, promise);
+                    }
+                    WebSocketContext webSocketContext = new WebSocketContext(this, serverWebSocket);
+                    contexts.put(serverWebSocket, webSocketContext);
+                    WebSocketMetrics connectionMetrics = metrics;
+                    webSocketContext.setMetrics(connectionMetrics);
+                    connectionMetrics.connected(webSocketContext);
+                    HeartbeatOptions heartbeat = heartbeatOptions;
+                    if (heartbeat != null && webSocketContext.getContext() != null) {
+                        heartbeats.computeIfAbsent(webSocketContext.getContext(),
+                                context -> new HeartbeatWheel(getVertx(), heartbeat)).add(webSocketContext);
+                        serverWebSocket.pongHandler(pong -> webSocketContext.touch());
+                    }
+
+                    // Handlers only capture the context, they are kept as long as the connection
+                    serverWebSocket.closeHandler(v -> webSocketContext.getServer().handleClose(webSocketContext));
+                    serverWebSocket.textMessageHandler(txt ->
+                            webSocketContext.getServer().handleTextMessage(webSocketContext, txt));
+                    serverWebSocket.binaryMessageHandler(buffer ->
+                            webSocketContext.getServer().handleBinaryMessage(webSocketContext, buffer));
                 });
-            }
-            CompletableFuture.allOf(futures)
-                    .thenAccept(v -> {
-                        resultFuture.complete(Arrays.stream(futures)
-                                .map(future -> future.join())
-                                .allMatch(e -> e));
-                    }).exceptionally(ex -> {
-                resultFuture.completeExceptionally(ex.getCause());
-                return null;
-            });
-        } else return CompletableFuture.completedFuture(true);
-        return resultFuture;
-    }
-
-    private void messageHandle(RequestContext requestContext, Map<?, Command> commandMap, ClientWriter clientWriter) {
-        CommandData commandData = requestContext.getReader().readData(requestContext.getData());
+    }
+
+    private void handleClose(WebSocketContext context) {
+        ServerWebSocket client = context.getClient();
+        if (contexts.remove(client) != null) {
+            if (context.getHeartbeatSlot() >= 0) stopHeartbeat(context);
+            context.dispose();
+            // Only the metrics that counted the connection uncount it
+            context.getMetrics().disconnected(context);
+        }
+        if (disconnectHandler != null) disconnectHandler.handle(client);
+    }
+
+    private void stopHeartbeat(WebSocketContext context) {
+        HeartbeatWheel wheel = heartbeats.get(context.getContext());
+        if (wheel != null && wheel.remove(context)) {
+            heartbeats.remove(context.getContext());
+            wheel.close();
+        }
+    }
+
+    private void handleBinaryMessage(WebSocketContext context, Buffer buffer) {
+        context.touch();
+        RequestContext requestContext = new RequestContext(context, buffer, binaryWriter, binaryReader);
+        RequestWindow window = context.getRequestWindow();
+        if (window != null && window.defer(() -> messageHandle(requestContext, true))) return;
+        messageHandle(requestContext, true);
+    }
+
+    private void handleTextMessage(WebSocketContext context, String text) {
+        context.touch();
+        RequestContext requestContext = new RequestContext(context, text, textWriter, textReader);
+        RequestWindow window = context.getRequestWindow();
+        if (window != null && window.defer(() -> messageHandle(requestContext, false))) return;
+        messageHandle(requestContext, false);
+    }
+
+    /**
+     * Sends message as a text frame to every connection subscribed to topic. The message is
+     * encoded once with the text writer and the same bytes are written to every subscriber.
+     */
+    public void publish(String topic, Object message) {
+        publish(topic, message, null, textWriter, false);
+    }
+
+    /**
+     * Like {@link #publish(String, Object)}, a frame with the same coalesceKey still waiting in the
+     * outbound queue of a subscriber is replaced by this one.
+     */
+    public void publish(String topic, Object message, Object coalesceKey) {
+        publish(topic, message, coalesceKey, textWriter, false);
+    }
+
+    /**
+     * Sends message as a binary frame to every connection subscribed to topic, encoded once with
+     * the binary writer.
+     */
+    public void publishBinary(String topic, Object message) {
+        publish(topic, message, null, binaryWriter, true);
+    }
+
+    public void publishBinary(String topic, Object message, Object coalesceKey) {
+        publish(topic, message, coalesceKey, binaryWriter, true);
+    }
+
+    private void publish(String topic, Object message, Object coalesceKey, Writer writer, boolean binary) {
+        ClusterBroadcast clusterBroadcast = this.clusterBroadcast;
+        if (clusterBroadcast == null && !topics.hasSubscribers(topic)) return;
+        SharedFrame frame = encodeFrame(message, null, writer, binary, Command.DEFAULT_RESPONSE_SIZE_HINT);
+        if (frame == null) return;
+        try {
+            topics.publish(topic, frame, coalesceKey);
+            if (clusterBroadcast != null) clusterBroadcast.send(topic, frame);
+        } finally {
+            frame.release();
+        }
+    }
+
+    /**
+     * Relays publications to the other nodes of the Vert.x cluster, and publications of the other
+     * nodes to the subscribers of this one. Works with any event bus, clustered or not.
+     */
+    public synchronized void enableClusterBroadcast(ClusterBroadcastOptions options) {
+        if (clusterBroadcast != null) clusterBroadcast.close();
+        clusterBroadcast = new ClusterBroadcast(getVertx(), topics, options, getMaxFrameSize());
+    }
+
+    ClusterBroadcast getClusterBroadcast() {
+        return clusterBroadcast;
+    }
+
+    public synchronized void disableClusterBroadcast() {
+        if (clusterBroadcast == null) return;
+        clusterBroadcast.close();
+        clusterBroadcast = null;
+    }
+
+    /**
+     * Runs blocking commands that are not bound to a {@link com.github.hlvx.websocket.annotations.Worker}
+     * pool on virtual threads, one per command, so that commands waiting on I/O don't hold a worker
+     * thread each. Results are still written from the event loop of the connection.
+     * Unlike the Vert.x worker pool, commands of the same event loop run concurrently and may
+     * complete in any order.
+     * @return false if the JVM has no virtual threads (before Java 21), commands then keep running
+     * on the worker pool
+     */
+    public synchronized boolean enableVirtualThreads() {
+        if (virtualThreads != null) return true;
+        virtualThreads = VirtualThreadExecutor.create("hlvx-command-");
+        if (virtualThreads == null) LOGGER.warn("Virtual threads are not available, using the worker pool");
+        return virtualThreads != null;
+    }
+
+    /**
+     * Runs blocking commands on the worker pool again, commands already running complete on their
+     * virtual thread.
+     */
+    public synchronized void disableVirtualThreads() {
+        if (virtualThreads == null) return;
+        virtualThreads.close();
+        virtualThreads = null;
+    }
+
+    int getMaxFrameSize() {
+        return options.getMaxFrameSize();
+    }
+
+    /**
+     * Encodes a message into a pooled heap buffer, which is written to sockets without copying.
+     * Heap rather than direct memory because Vert.x copies direct buffers to the heap before
+     * encoding the frame. The buffer goes back to the pool once the frame is released and every
+     * write of it completed, or right away if the writer returned a buffer of its own.
+     */
+    private SharedFrame encodeFrame(Object message, Object correlationId, Writer writer, boolean binary,
+                                    int sizeHint) {
+        return encodeFrame(binary, sizeHint, out -> correlationId != null
+                ? writer.encode(message, correlationId, out) : writer.encode(message, out));
+    }
+
+    /**
+     * @param encoder writes into the pooled buffer it gets, returns it or a buffer of its own, or
+     *                null to send nothing
+     */
+    private SharedFrame encodeFrame(boolean binary, int sizeHint, Function<Buffer, Buffer> encoder) {
+        ByteBuf pooled = PooledByteBufAllocator.DEFAULT.heapBuffer(sizeHint);
+        Buffer out = Buffer.buffer(pooled);
+        Buffer data;
+        try {
+            data = encoder.apply(out);
+        } catch (RuntimeException ex) {
+            pooled.release();
+            throw ex;
+        }
+        if (data == out) return new SharedFrame(pooled, binary, getMaxFrameSize());
+        pooled.release();
+        return data != null ? SharedFrame.wrap(data.getByteBuf(), binary, getMaxFrameSize()) : null;
+    }
+
+    public OutboundPolicy getOutboundPolicy() {
+        return outboundPolicy;
+    }
+
+    /**
+     * Bounds the memory used by connections that read slower than the server writes, applies to
+     * connections accepted after the call.
+     */
+    public void setOutboundPolicy(OutboundPolicy outboundPolicy) {
+        this.outboundPolicy = outboundPolicy;
+    }
+
+    public OutboundStats getOutboundStats() {
+        return outboundStats;
+    }
+
+    public long getAuthorizationCacheTtl() {
+        return authorizer.getTtl();
+    }
+
+    /**
+     * @param ttl how long, in milliseconds, a connection remembers whether its user has a
+     *            permission. 0 asks the user for every command.
+     */
+    public void setAuthorizationCacheTtl(long ttl) {
+        authorizer.setTtl(ttl);
+    }
+
+    /**
+     * Forgets the cached authorizations of every connection, for instance after roles changed.
+     */
+    public void invalidateAuthorizations() {
+        for (WebSocketContext context : contexts.values()) context.invalidateAuthorizations();
+    }
+
+    /**
+     * Forgets the cached responses of a text command, for instance after the data it reads changed.
+     */
+    public synchronized void invalidateResponseCache(String command) {
+        invalidate(commands.getTextCommands().get(command));
+    }
+
+    /**
+     * Forgets the cached responses of a binary command.
+     */
+    public synchronized void invalidateResponseCache(int commandId) {
+        invalidate(commands.getBinaryCommands().get(commandId));
+    }
+
+    /**
+     * Forgets the cached responses of every command.
+     */
+    public synchronized void invalidateResponseCaches() {
+        CommandRegistry commands = this.commands;
+        for (Command command : commands.getTextCommands().values()) invalidate(command);
+        for (Command command : commands.getBinaryCommands().values()) invalidate(command);
+    }
+
+    private static void invalidate(Command command) {
+        if (command != null && command.getResponseCache() != null) command.getResponseCache().invalidate();
+    }
+
+    public WebSocketMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Records the activity of the server, see {@link com.github.hlvx.websocket.metrics.MicrometerMetrics}.
+     * Connections opened before the call are neither counted nor uncounted per event loop.
+     * @param metrics the metrics, or null to stop recording
+     */
+    public synchronized void setMetrics(WebSocketMetrics metrics) {
+        this.metrics = metrics != null ? metrics : WebSocketMetrics.NOOP;
+        metricsEnabled = metrics != null && metrics != WebSocketMetrics.NOOP;
+        this.metrics.activeConnections(contexts::size);
+        CommandRegistry commands = this.commands;
+        for (Map.Entry<String, Command> entry : commands.getTextCommands().entrySet())
+            entry.getValue().setMetrics(this.metrics.command(entry.getKey(), false));
+        for (Map.Entry<Integer, Command> entry : commands.getBinaryCommands().entrySet())
+            entry.getValue().setMetrics(this.metrics.command(String.valueOf(entry.getKey()), true));
+        // Republished so that event loops see the new metrics of the commands
+        this.commands = new CommandRegistry(new HashMap<>(commands.getTextCommands()),
+                new HashMap<>(commands.getBinaryCommands()));
+    }
+
+    public PipeliningOptions getPipeliningOptions() {
+        return pipeliningOptions;
+    }
+
+    /**
+     * Bounds the requests a connection can have in flight and orders their responses, applies to
+     * connections accepted after the call. Without options, responses are sent as soon as they are
+     * ready and connections are read as fast as they send.
+     * Readers and writers must be set up to extract and echo correlation ids for clients to tell
+     * responses apart, see {@link StreamingJsonReader} and {@link JsonWriter}.
+     */
+    public void setPipeliningOptions(PipeliningOptions pipeliningOptions) {
+        this.pipeliningOptions = pipeliningOptions;
+    }
+
+    public RateLimitOptions getConnectionRateLimit() {
+        return connectionRateLimit;
+    }
+
+    /**
+     * Limits the commands each connection can send, whatever the commands, on top of their own
+     * {@link RateLimit}. Commands of a batch are counted one by one.
+     * @param connectionRateLimit the limit, or null to remove it
+     */
+    public synchronized void setConnectionRateLimit(RateLimitOptions connectionRateLimit) {
+        this.connectionRateLimit = connectionRateLimit;
+        connectionRateLimiter = connectionRateLimit != null ? new RateLimiter(0, connectionRateLimit) : null;
+    }
+
+    public HeartbeatOptions getHeartbeatOptions() {
+        return heartbeatOptions;
+    }
+
+    /**
+     * Pings idle connections and closes the ones that stay silent, applies to connections accepted
+     * after the call. Closed connections go through the disconnect handler like any other.
+     * @param heartbeatOptions the options, or null to leave idle connections open
+     */
+    public void setHeartbeatOptions(HeartbeatOptions heartbeatOptions) {
+        this.heartbeatOptions = heartbeatOptions;
+    }
+
+    public WebSocketServerOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Sets the options of the HTTP servers, applies to servers started after the call.
+     */
+    public void setOptions(WebSocketServerOptions options) {
+        this.options = options;
+    }
+
+    public TopicRegistry getTopics() {
+        return topics;
+    }
+
+    private void messageHandle(RequestContext requestContext, boolean binary) {
+        boolean timed = metricsEnabled;
+        long start = timed ? System.nanoTime() : 0;
+        String text = requestContext.getText();
+        CommandData commandData;
+        try {
+            commandData = text != null
+                    ? requestContext.getReader().readText(text)
+                    : requestContext.getReader().readData(requestContext.getData());
+        } catch (RuntimeException ex) {
+            metrics.messageFailed(binary, ex);
+            throw ex;
+        }
         requestContext.setCommandData(commandData);
-        Command command = commandMap.get(commandData.getCommand());
-        if (command == null)
-            throw new CommandNotRegisteredException(commandData.getCommand() + " is not a registered command.");
-        requestContext.registerObject(requestContext.getWebSocketContext().getUser());
-        checkPermissions(command, requestContext).thenAccept(e -> {
-            if (!e) {
-                Vertx.currentContext().runOnContext(ctx -> {
-                    throw new RuntimeException(new BadPermissionsException("User not authorized to do that."));
-                });
-                return;
+        if (commandData instanceof CommandBatch) {
+            batchHandle(requestContext, (CommandBatch) commandData, binary, start);
+            return;
+        }
+        Command command = lookup(commandData, binary);
+        RequestWindow window = requestContext.getWebSocketContext().getRequestWindow();
+        if (window != null) requestContext.setResponseSlot(window.begin());
+        dispatch(requestContext, command, binary, start);
+    }
+
+    private Command lookup(CommandData commandData, boolean binary) {
+        Command command = commands.lookup(commandData, binary);
+        if (command == null) {
+            CommandNotRegisteredException ex =
+                    new CommandNotRegisteredException(commandData.getCommand() + " is not a registered command.");
+            metrics.messageFailed(binary, ex);
+            throw ex;
+        }
+        return command;
+    }
+
+    /**
+     * Dispatches the commands of a batch frame together. The batch takes one place in the request
+     * window and is answered with one frame, see {@link BatchResponse}.
+     */
+    private void batchHandle(RequestContext requestContext, CommandBatch batch, boolean binary, long start) {
+        WebSocketContext webSocketContext = requestContext.getWebSocketContext();
+        RequestWindow window = webSocketContext.getRequestWindow();
+        if (window != null) requestContext.setResponseSlot(window.begin());
+        List<CommandData> commands = batch.getData();
+        if (commands.isEmpty()) {
+            writeBatch(requestContext, binary, Collections.emptyList(), true);
+            return;
+        }
+        // Responses held by an ordered window are sent in order anyway, lingering would only split them
+        long linger = window != null && window.isOrdered() ? 0 : batchLinger;
+        BatchResponse response = new BatchResponse(this, requestContext, binary, commands.size(), linger);
+        RuntimeException error = null;
+        for (int i = 0; i < commands.size(); ++i) {
+            Object frame = batch.getFrames().get(i);
+            RequestContext commandContext = frame instanceof String
+                    ? new RequestContext(webSocketContext, (String) frame, requestContext.getWriter(),
+                            requestContext.getReader())
+                    : new RequestContext(webSocketContext, (Buffer) frame, requestContext.getWriter(),
+                            requestContext.getReader());
+            commandContext.setCommandData(commands.get(i));
+            commandContext.setBatch(response, i);
+            try {
+                dispatch(commandContext, lookup(commands.get(i), binary), binary, start);
+            } catch (RuntimeException ex) {
+                response.complete(i, null);
+                if (error == null) error = ex;
             }
-            if (command.getReturnType().equals(Future.class)) processAsync(command, requestContext, clientWriter);
-            else processBlocking(command, requestContext, clientWriter);
-        }).exceptionally(ex -> {
-            Vertx.currentContext().runOnContext(e -> {
-                throw new RuntimeException(ex);
-            });
-            return null;
+        }
+        if (error != null) throw error;
+    }
+
+    private void dispatch(RequestContext requestContext, Command command, boolean binary, long start) {
+        commandsInFlight.increment();
+        boolean timed = metricsEnabled;
+        String text = requestContext.getText();
+        WebSocketContext webSocketContext = requestContext.getWebSocketContext();
+        CommandMetrics commandMetrics = command.getMetrics();
+        long decoded = timed ? System.nanoTime() : 0;
+        if (timed) {
+            commandMetrics.received(text != null ? text.length() : requestContext.getData().length());
+            commandMetrics.decoded(decoded - start);
+        }
+
+        RateLimiter connectionLimiter = connectionRateLimiter;
+        RateLimiter commandLimiter = command.getRateLimiter();
+        if (connectionLimiter != null || commandLimiter != null) {
+            long now = RateLimiter.now();
+            if (!acquirePermit(requestContext, command, binary, connectionLimiter, now)
+                    || !acquirePermit(requestContext, command, binary, commandLimiter, now)) return;
+        }
+
+        User user = webSocketContext.getUser();
+        if (command.getPermissionIds().length > 0 && user == null)
+            throw failed(requestContext, command, new BadPermissionsException("User not set."));
+
+        switch (authorizer.check(command.getPermissionIds(), webSocketContext)) {
+            case Authorizer.GRANTED:
+                if (timed) commandMetrics.authorized(System.nanoTime() - decoded);
+                process(command, requestContext, binary);
+                return;
+            case Authorizer.DENIED:
+                throw failed(requestContext, command, new BadPermissionsException("User not authorized to do that."));
+        }
+        io.vertx.core.Context context = Vertx.currentContext();
+        authorizer.resolve(command.getPermissionIds(), webSocketContext, user, result -> {
+            if (timed) commandMetrics.authorized(System.nanoTime() - decoded);
+            Handler<Void> next = v -> {
+                if (result.failed()) throw failed(requestContext, command, new RuntimeException(result.cause()));
+                if (!result.result())
+                    throw failed(requestContext, command,
+                            new BadPermissionsException("User not authorized to do that."));
+                process(command, requestContext, binary);
+            };
+            if (context == null || context == Vertx.currentContext()) next.handle(null);
+            else context.runOnContext(next);
         });
     }
 
-    private void processAsync(Command command, RequestContext requestContext, ClientWriter clientWriter) {
-        try {
-            ((Future<?>) command.invoke(requestContext,
-                    new Object[] { requestContext.getCommandData().getData() })).setHandler(result -> {
-                if (result.failed()) throw new RuntimeException(result.cause());
-                Buffer buffer = Buffer.buffer();
-                requestContext.getWriter().writeData(result.result(), buffer);
-                clientWriter.write(requestContext.getWebSocketContext().getClient(), buffer);
-            });
-        } catch (IllegalAccessException | InvocationTargetException ex) {
-            throw new RuntimeException(ex);
+    /**
+     * Takes a permit for the command from the bucket of its connection. Over the limit, pauses the
+     * connection until the bucket refills or rejects the command, depending on the limiter.
+     * @return false if the command was rejected
+     */
+    private boolean acquirePermit(RequestContext requestContext, Command command, boolean binary,
+                                  RateLimiter limiter, long now) {
+        if (limiter == null) return true;
+        WebSocketContext webSocketContext = requestContext.getWebSocketContext();
+        boolean pause = limiter.getOverloadPolicy() == OverloadPolicy.PAUSE;
+        long wait = limiter.acquire(webSocketContext.getRateLimits(rateLimiters), now, pause);
+        if (wait == 0) return true;
+        if (pause) {
+            webSocketContext.pauseReads();
+            getVertx().setTimer(Math.max(TimeUnit.NANOSECONDS.toMillis(wait), 1),
+                    id -> webSocketContext.resumeReads());
+            return true;
         }
+        reject(requestContext, binary, command, new RateLimitExceededException("Rate limit exceeded."));
+        return false;
     }
 
-    private void processBlocking(Command command, RequestContext requestContext, ClientWriter clientWriter) {
-        Vertx.vertx().executeBlocking(promise -> {
+    private void process(Command command, RequestContext requestContext, boolean binary) {
+        ResponseCache cache = command.getResponseCache();
+        if (cache != null) {
+            Object data = requestContext.getCommandData().getData();
+            Object key;
             try {
-                promise.complete(command.invoke(requestContext,
-                        new Object[] { requestContext.getCommandData().getData() }));
-            } catch (IllegalAccessException | InvocationTargetException e) {
-                throw new RuntimeException(e);
+                key = cacheKeyOf(data);
+            } catch (RuntimeException ex) {
+                throw failed(requestContext, command, ex);
             }
-        }, result -> {
-            if (result.failed()) throw new RuntimeException(result.cause());
-            Buffer buffer = Buffer.buffer();
-            requestContext.getWriter().writeData(result.result(), buffer);
-            clientWriter.write(requestContext.getWebSocketContext().getClient(), buffer);
+            Buffer cached = key != null ? cache.get(key) : null;
+            if (cached != null) {
+                writeEncoded(requestContext, binary, command, cached);
+                return;
+            }
+            requestContext.setCacheKey(key);
+        }
+        if (command.getReturnType().equals(Future.class)) processAsync(command, requestContext, binary);
+        else processBlocking(command, requestContext, binary);
+    }
+
+    /**
+     * @return a key that does not change with the data handed to the command, null if the data
+     * can not be used as one
+     */
+    private static Object cacheKeyOf(Object data) {
+        if (data instanceof Payload) return ((Payload) data).cacheKey();
+        if (data instanceof JsonObject) return ((JsonObject) data).copy();
+        if (data instanceof JsonArray) return ((JsonArray) data).copy();
+        if (data instanceof Buffer) return ((Buffer) data).copy();
+        if (data instanceof String || data instanceof Number || data instanceof Boolean) return data;
+        return null;
+    }
+
+    private void processAsync(Command command, RequestContext requestContext, boolean binary) {
+        boolean timed = metricsEnabled;
+        long start = timed ? System.nanoTime() : 0;
+        Future<?> future;
+        try {
+            future = (Future<?>) command.invoke(requestContext, requestContext.getCommandData().getData());
+        } catch (Throwable ex) {
+            throw failed(requestContext, command, new RuntimeException(ex));
+        }
+        future.setHandler(result -> {
+            if (timed) command.getMetrics().executed(System.nanoTime() - start);
+            if (result.failed()) throw failed(requestContext, command, new RuntimeException(result.cause()));
+            writeResponse(requestContext, binary, command, result.result());
         });
     }
 
+    private void processBlocking(Command command, RequestContext requestContext, boolean binary) {
+        boolean timed = metricsEnabled;
+        Handler<Promise<Object>> task = promise -> {
+            long start = timed ? System.nanoTime() : 0;
+            try {
+                promise.complete(command.invoke(requestContext, requestContext.getCommandData().getData()));
+            } catch (Throwable e) {
+                promise.fail(e);
+            } finally {
+                if (timed) command.getMetrics().executed(System.nanoTime() - start);
+            }
+        };
+        Handler<AsyncResult<Object>> resultHandler = result -> {
+            if (result.failed()) throw failed(requestContext, command, new RuntimeException(result.cause()));
+            writeResponse(requestContext, binary, command, result.result());
+        };
+
+        String poolName = command.getWorkerPool();
+        if (poolName == null) {
+            VirtualThreadExecutor virtualThreads = this.virtualThreads;
+            io.vertx.core.Context context = requestContext.getWebSocketContext().getContext();
+            if (virtualThreads == null || context == null || !virtualThreads.execute(context, task, resultHandler))
+                getVertx().executeBlocking(task, resultHandler);
+            return;
+        }
+        CommandWorkerPool pool = workerPools.get(poolName);
+        if (pool == null)
+            throw failed(requestContext, command,
+                    new IllegalStateException("Worker pool " + poolName + " is not registered."));
+        if (!pool.execute(requestContext.getWebSocketContext(), task, resultHandler))
+            reject(requestContext, binary, command,
+                    new CommandRejectedException("Worker pool " + poolName + " is saturated."));
+    }
+
+    /**
+     * Answers a request the server refused to run with the error frame, or fails like any other
+     * error when no {@link #setErrorFrameProvider error frame provider} is set.
+     */
+    private void reject(RequestContext requestContext, boolean binary, Command command,
+                        CommandRejectedException ex) {
+        if (errorFrameProvider == null) throw failed(requestContext, command, ex);
+        command.getMetrics().failed(ex);
+        requestContext.setCacheKey(null);
+        writeResponse(requestContext, binary, command, errorFrameProvider.apply(requestContext, ex));
+    }
+
+    /**
+     * Records the failure of a request and releases its place in the request window, as it will
+     * get no response.
+     */
+    private <T extends Throwable> T failed(RequestContext requestContext, Command command, T ex) {
+        command.getMetrics().failed(ex);
+        BatchResponse batch = requestContext.getBatch();
+        if (batch != null) batch.complete(requestContext.getBatchIndex(), null);
+        RequestWindow.Slot slot = requestContext.getResponseSlot();
+        if (slot != null) requestContext.getWebSocketContext().getRequestWindow().complete(slot, null);
+        commandsInFlight.decrement();
+        return ex;
+    }
+
+    private void writeResponse(RequestContext requestContext, boolean binary, Command command, Object result) {
+        Writer writer = requestContext.getWriter();
+        Object cacheKey = requestContext.getCacheKey();
+        if (cacheKey != null && result != null) {
+            Buffer encoded;
+            try {
+                encoded = writer.encode(result, Buffer.buffer(command.getResponseSizeHint()));
+            } catch (RuntimeException ex) {
+                throw failed(requestContext, command, ex);
+            }
+            if (encoded == null) {
+                write(requestContext, binary, command, out -> null);
+                return;
+            }
+            // Kept apart from the result, which the service may still modify
+            if (encoded == result) encoded = encoded.copy();
+            command.getResponseCache().put(cacheKey, encoded);
+            writeEncoded(requestContext, binary, command, encoded);
+            return;
+        }
+        Object correlationId = requestContext.getCommandData().getCorrelationId();
+        write(requestContext, binary, command, out -> correlationId != null
+                ? writer.encode(result, correlationId, out) : writer.encode(result, out));
+    }
+
+    /**
+     * Writes a response whose data was encoded beforehand, by the writer of the request.
+     */
+    private void writeEncoded(RequestContext requestContext, boolean binary, Command command, Buffer encoded) {
+        Object correlationId = requestContext.getCommandData().getCorrelationId();
+        Writer writer = requestContext.getWriter();
+        write(requestContext, binary, command, out -> writer.encodeEncoded(encoded, correlationId, out));
+    }
+
+    private void write(RequestContext requestContext, boolean binary, Command command,
+                       Function<Buffer, Buffer> encoder) {
+        boolean timed = metricsEnabled;
+        long start = timed ? System.nanoTime() : 0;
+        BatchResponse batch = requestContext.getBatch();
+        if (batch != null) {
+            Buffer response;
+            try {
+                response = encoder.apply(Buffer.buffer(command.getResponseSizeHint()));
+            } catch (RuntimeException ex) {
+                throw failed(requestContext, command, ex);
+            }
+            if (timed) command.getMetrics().encoded(System.nanoTime() - start, response != null ? response.length() : 0);
+            batch.complete(requestContext.getBatchIndex(), response);
+            commandsInFlight.decrement();
+            return;
+        }
+        SharedFrame frame;
+        try {
+            frame = encodeFrame(binary, command.getResponseSizeHint(), encoder);
+        } catch (RuntimeException ex) {
+            throw failed(requestContext, command, ex);
+        }
+        if (timed) command.getMetrics().encoded(System.nanoTime() - start, frame != null ? frame.length() : 0);
+        try {
+            // A null frame sends nothing, the slot is still released for the responses after it
+            RequestWindow.Slot slot = requestContext.getResponseSlot();
+            if (slot != null) requestContext.getWebSocketContext().getRequestWindow().complete(slot, frame);
+            else if (frame != null) requestContext.getWebSocketContext().write(frame, null);
+        } finally {
+            if (frame != null) frame.release();
+            // After the window completed, which may dispatch the requests it deferred
+            commandsInFlight.decrement();
+        }
+    }
+
+    /**
+     * Sends the responses to commands of a batch frame, joined into one frame by the writer, or
+     * one frame each if the writer has no batch format. They go through the place of the batch in
+     * the request window, so earlier requests are answered first in ordered mode.
+     * @param last true once every command of the batch completed
+     */
+    void writeBatch(RequestContext requestContext, boolean binary, List<Buffer> responses, boolean last) {
+        Writer writer = requestContext.getWriter();
+        WebSocketContext webSocketContext = requestContext.getWebSocketContext();
+        RequestWindow.Slot slot = requestContext.getResponseSlot();
+        SharedFrame frame = null;
+        if (!responses.isEmpty()) {
+            int size = 8;
+            for (Buffer response : responses) size += response.length() + 4;
+            frame = encodeFrame(binary, size, out -> writer.encodeBatch(responses, out));
+            if (frame == null) {
+                for (Buffer response : responses) {
+                    SharedFrame single = SharedFrame.wrap(response.getByteBuf(), binary, getMaxFrameSize());
+                    try {
+                        writeToSlot(webSocketContext, slot, single);
+                    } finally {
+                        single.release();
+                    }
+                }
+            }
+        }
+        try {
+            if (last && slot != null) webSocketContext.getRequestWindow().complete(slot, frame);
+            else if (frame != null) writeToSlot(webSocketContext, slot, frame);
+        } finally {
+            if (frame != null) frame.release();
+        }
+    }
+
+    private static void writeToSlot(WebSocketContext webSocketContext, RequestWindow.Slot slot, SharedFrame frame) {
+        if (slot != null) webSocketContext.getRequestWindow().write(slot, frame);
+        else webSocketContext.write(frame, null);
+    }
+
+    public long getBatchLinger() {
+        return batchLinger;
+    }
+
+    /**
+     * @param batchLinger how long, in milliseconds, the responses to a batch frame that are ready
+     *                    wait for the others before being sent. 0 waits for the whole batch.
+     */
+    public void setBatchLinger(long batchLinger) {
+        this.batchLinger = batchLinger;
+    }
+
+    public Vertx getVertx() {
+        Vertx vertx = this.vertx;
+        if (vertx != null) return vertx;
+        synchronized (this) {
+            if (this.vertx == null) this.vertx = Vertx.vertx();
+            return this.vertx;
+        }
+    }
+
     public BiConsumer<ServerWebSocket, Handler<AsyncResult<Integer>>> getHandshakeHandler() {
         return handshakeHandler;
     }
@@ -211,10 +1027,6 @@ public class WebSocketServer {
         this.handshakeHandler = handshakeHandler;
     }
 
-    private interface ClientWriter {
-        void write(ServerWebSocket websocket, Buffer data);
-    }
-
     public Reader<Buffer> getBinaryReader() {
         return binaryReader;
     }
@@ -247,6 +1059,18 @@ public class WebSocketServer {
         this.textWriter = textWriter;
     }
 
+    public BiFunction<RequestContext, Throwable, Object> getErrorFrameProvider() {
+        return errorFrameProvider;
+    }
+
+    /**
+     * @param errorFrameProvider builds the object written back, with the request's writer, when a
+     *                           request is rejected
+     */
+    public void setErrorFrameProvider(BiFunction<RequestContext, Throwable, Object> errorFrameProvider) {
+        this.errorFrameProvider = errorFrameProvider;
+    }
+
     public void setConnectHandler(Handler<ServerWebSocket> connectHandler) {
         this.connectHandler = connectHandler;
     }
@@ -0,0 +1,153 @@
+package com.github.hlvx.websocket.servers;
+
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateServerExtensionHandshaker;
+import io.vertx.core.http.HttpServerOptions;
+
+/**
+ * Options of the HTTP servers a {@link WebSocketServer} listens with, mostly permessage-deflate.
+ * <p>
+ * Compression is negotiated per connection, only with clients offering it. Each compressing
+ * connection holds its own deflater, so frames published to a topic are encoded once but
+ * compressed for every subscriber.
+ */
+public class WebSocketServerOptions {
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 0;
+
+    private HttpServerOptions httpServerOptions = new HttpServerOptions();
+    private boolean compressionSupported;
+    private int compressionLevel = HttpServerOptions.DEFAULT_WEBSOCKET_COMPRESSION_LEVEL;
+    private int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+    private int clientMaxWindowBits = PerMessageDeflateServerExtensionHandshaker.MAX_WINDOW_SIZE;
+    private boolean serverNoContextTakeover = HttpServerOptions.DEFAULT_WEBSOCKET_ALLOW_SERVER_NO_CONTEXT;
+    private boolean clientNoContextTakeover = HttpServerOptions.DEFAULT_WEBSOCKET_PREFERRED_CLIENT_NO_CONTEXT;
+    private int maxFrameSize = HttpServerOptions.DEFAULT_MAX_WEBSOCKET_FRAME_SIZE;
+    private int maxMessageSize = HttpServerOptions.DEFAULT_MAX_WEBSOCKET_MESSAGE_SIZE;
+
+    public HttpServerOptions getHttpServerOptions() {
+        return httpServerOptions;
+    }
+
+    /**
+     * @param httpServerOptions the base options (TLS, idle timeout...), the WebSocket settings of
+     *                          this object are applied on a copy of them
+     */
+    public WebSocketServerOptions setHttpServerOptions(HttpServerOptions httpServerOptions) {
+        this.httpServerOptions = httpServerOptions;
+        return this;
+    }
+
+    /**
+     * @return true if the server accepts permessage-deflate, false by default
+     */
+    public boolean isCompressionSupported() {
+        return compressionSupported;
+    }
+
+    public WebSocketServerOptions setCompressionSupported(boolean compressionSupported) {
+        this.compressionSupported = compressionSupported;
+        return this;
+    }
+
+    /**
+     * @return the deflate level, from 1 (fastest) to 9 (smallest)
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public WebSocketServerOptions setCompressionLevel(int compressionLevel) {
+        if (compressionLevel < 0 || compressionLevel > 9)
+            throw new IllegalArgumentException("compressionLevel must be between 0 and 9");
+        this.compressionLevel = compressionLevel;
+        return this;
+    }
+
+    /**
+     * @return the size under which frames are sent uncompressed, deflating a few bytes costs more
+     * CPU than it saves bandwidth
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public WebSocketServerOptions setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+        return this;
+    }
+
+    /**
+     * @return the window size, in bits, clients are asked to compress with. Smaller windows use
+     * less memory on both sides. The window the server compresses with is only reduced on the
+     * request of clients, and only when JZlib is on the classpath
+     */
+    public int getClientMaxWindowBits() {
+        return clientMaxWindowBits;
+    }
+
+    public WebSocketServerOptions setClientMaxWindowBits(int clientMaxWindowBits) {
+        if (clientMaxWindowBits < PerMessageDeflateServerExtensionHandshaker.MIN_WINDOW_SIZE
+                || clientMaxWindowBits > PerMessageDeflateServerExtensionHandshaker.MAX_WINDOW_SIZE)
+            throw new IllegalArgumentException("clientMaxWindowBits must be between 8 and 15");
+        this.clientMaxWindowBits = clientMaxWindowBits;
+        return this;
+    }
+
+    /**
+     * @return true if the server accepts clients asking it to compress each message on its own.
+     * Small similar messages compress worse, but the cost of a message no longer depends on the
+     * ones sent before it
+     */
+    public boolean isServerNoContextTakeover() {
+        return serverNoContextTakeover;
+    }
+
+    public WebSocketServerOptions setServerNoContextTakeover(boolean serverNoContextTakeover) {
+        this.serverNoContextTakeover = serverNoContextTakeover;
+        return this;
+    }
+
+    /**
+     * @return true if the server asks clients to compress each message on their own
+     */
+    public boolean isClientNoContextTakeover() {
+        return clientNoContextTakeover;
+    }
+
+    public WebSocketServerOptions setClientNoContextTakeover(boolean clientNoContextTakeover) {
+        this.clientNoContextTakeover = clientNoContextTakeover;
+        return this;
+    }
+
+    /**
+     * @return the size above which frames are fragmented when sent, and refused when received
+     */
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    public WebSocketServerOptions setMaxFrameSize(int maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+        return this;
+    }
+
+    public int getMaxMessageSize() {
+        return maxMessageSize;
+    }
+
+    public WebSocketServerOptions setMaxMessageSize(int maxMessageSize) {
+        this.maxMessageSize = maxMessageSize;
+        return this;
+    }
+
+    /**
+     * Compression is left out, Vert.x installs it where it is never negotiated, see
+     * {@link WebSocketCompression}.
+     */
+    HttpServerOptions toHttpServerOptions() {
+        return new HttpServerOptions(httpServerOptions)
+                .setPerMessageWebsocketCompressionSupported(false)
+                .setPerFrameWebsocketCompressionSupported(false)
+                .setMaxWebsocketFrameSize(maxFrameSize)
+                .setMaxWebsocketMessageSize(maxMessageSize);
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.hlvx.websocket.servers;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.core.http.HttpServer;
+
+/**
+ * Runs one HTTP server for a {@link WebSocketServer} on the event loop of this verticle.
+ * Several instances can listen on the same port, they all dispatch to the commands of the
+ * same {@link WebSocketServer}.
+ */
+public class WebSocketServerVerticle extends AbstractVerticle {
+    private final WebSocketServer server;
+    private final int port;
+    private HttpServer httpServer;
+
+    public WebSocketServerVerticle(WebSocketServer server, int port) {
+        this.server = server;
+        this.port = port;
+    }
+
+    @Override
+    public void start(Promise<Void> startPromise) {
+        server.bindVertx(vertx);
+        httpServer = server.createHttpServer(vertx);
+        httpServer.listen(port, result -> {
+            if (result.succeeded()) startPromise.complete();
+            else startPromise.fail(result.cause());
+        });
+    }
+
+    @Override
+    public void stop(Promise<Void> stopPromise) {
+        httpServer.close(stopPromise);
+    }
+
+    public HttpServer getHttpServer() {
+        return httpServer;
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.hlvx.websocket.servers;
+
+import io.vertx.core.VertxOptions;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration of a named worker pool for blocking commands.
+ */
+public class WorkerPoolOptions {
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 1024;
+
+    private final String name;
+    private int poolSize = VertxOptions.DEFAULT_WORKER_POOL_SIZE;
+    private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+    private boolean ordered;
+    private long maxExecuteTime = VertxOptions.DEFAULT_MAX_WORKER_EXECUTE_TIME;
+    private TimeUnit maxExecuteTimeUnit = TimeUnit.NANOSECONDS;
+    private OverloadPolicy overloadPolicy = OverloadPolicy.PAUSE;
+
+    public WorkerPoolOptions(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public WorkerPoolOptions setPoolSize(int poolSize) {
+        if (poolSize < 1) throw new IllegalArgumentException("poolSize must be > 0");
+        this.poolSize = poolSize;
+        return this;
+    }
+
+    /**
+     * @return how many commands may wait for a thread once every thread of the pool is busy
+     */
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public WorkerPoolOptions setMaxQueueSize(int maxQueueSize) {
+        if (maxQueueSize < 0) throw new IllegalArgumentException("maxQueueSize must be >= 0");
+        this.maxQueueSize = maxQueueSize;
+        return this;
+    }
+
+    /**
+     * @return whether commands submitted from the same event loop run one after the other
+     */
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    public WorkerPoolOptions setOrdered(boolean ordered) {
+        this.ordered = ordered;
+        return this;
+    }
+
+    public long getMaxExecuteTime() {
+        return maxExecuteTime;
+    }
+
+    public WorkerPoolOptions setMaxExecuteTime(long maxExecuteTime) {
+        this.maxExecuteTime = maxExecuteTime;
+        return this;
+    }
+
+    public TimeUnit getMaxExecuteTimeUnit() {
+        return maxExecuteTimeUnit;
+    }
+
+    public WorkerPoolOptions setMaxExecuteTimeUnit(TimeUnit maxExecuteTimeUnit) {
+        this.maxExecuteTimeUnit = maxExecuteTimeUnit;
+        return this;
+    }
+
+    /**
+     * @return what happens to a command submitted while the pool and its queue are full
+     */
+    public OverloadPolicy getOverloadPolicy() {
+        return overloadPolicy;
+    }
+
+    public WorkerPoolOptions setOverloadPolicy(OverloadPolicy overloadPolicy) {
+        this.overloadPolicy = overloadPolicy;
+        return this;
+    }
+}
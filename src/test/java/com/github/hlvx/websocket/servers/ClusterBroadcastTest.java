@@ -0,0 +1,144 @@
+package com.github.hlvx.websocket.servers;
+
+import com.github.hlvx.websocket.annotations.Context;
+import com.github.hlvx.websocket.annotations.TextCommand;
+import com.github.hlvx.websocket.models.WebSocketContext;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.WebSocket;
+import io.vertx.core.json.JsonObject;
+import io.vertx.test.fakecluster.FakeClusterManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs several clustered Vert.x instances in the JVM, each with its own {@link WebSocketServer}.
+ */
+class ClusterBroadcastTest {
+    private static final int NODES = 3;
+    private static final String TOPIC = "news";
+
+    private final List<Vertx> nodes = new ArrayList<>();
+    private final List<WebSocketServer> servers = new ArrayList<>();
+    private final List<Integer> ports = new ArrayList<>();
+
+    public static class Service {
+        @TextCommand(command = "subscribe")
+        public JsonObject subscribe(JsonObject data, @Context WebSocketContext context) {
+            context.subscribe(data.getString("topic"));
+            return data;
+        }
+    }
+
+    @BeforeEach
+    void startNodes() throws Exception {
+        for (int i = 0; i < NODES; ++i) {
+            CompletableFuture<Vertx> clustered = new CompletableFuture<>();
+            Vertx.clusteredVertx(new VertxOptions().setClusterManager(new FakeClusterManager()), ar -> {
+                if (ar.succeeded()) clustered.complete(ar.result());
+                else clustered.completeExceptionally(ar.cause());
+            });
+            Vertx vertx = clustered.get(30, TimeUnit.SECONDS);
+            nodes.add(vertx);
+            WebSocketServer server = new WebSocketServer(vertx);
+            server.addServices(new Service());
+            server.enableClusterBroadcast(new ClusterBroadcastOptions().setLinger(20));
+            CompletableFuture<HttpServer> listening = new CompletableFuture<>();
+            server.start(0, ar -> {
+                if (ar.succeeded()) listening.complete(ar.result());
+                else listening.completeExceptionally(ar.cause());
+            });
+            ports.add(listening.get(10, TimeUnit.SECONDS).actualPort());
+            servers.add(server);
+        }
+    }
+
+    @AfterEach
+    void stopNodes() throws Exception {
+        for (Vertx vertx : nodes) {
+            CompletableFuture<Void> closed = new CompletableFuture<>();
+            vertx.close(ar -> closed.complete(null));
+            closed.get(30, TimeUnit.SECONDS);
+        }
+        FakeClusterManager.reset();
+    }
+
+    @Test
+    void publicationsReachSubscribersOfOtherNodesInOrder() throws Exception {
+        BlockingQueue<String> first = subscribe(1, TOPIC);
+        BlockingQueue<String> second = subscribe(2, TOPIC);
+        awaitRelay(first, second);
+
+        for (int i = 0; i < 100; ++i) servers.get(0).publish(TOPIC, new JsonObject().put("seq", i));
+        for (BlockingQueue<String> received : Arrays.asList(first, second))
+            for (int i = 0; i < 100; ++i) {
+                String message = received.poll(10, TimeUnit.SECONDS);
+                assertEquals(new JsonObject().put("seq", i).encode(), message);
+            }
+    }
+
+    @Test
+    void flushedBatchesAreDropped() throws Exception {
+        ClusterBroadcast clusterBroadcast = servers.get(0).getClusterBroadcast();
+        for (int i = 0; i < 1000; ++i) servers.get(0).publish("topic-" + i, new JsonObject().put("seq", i));
+        assertTrue(clusterBroadcast.pendingBatches() > 0);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (clusterBroadcast.pendingBatches() > 0 && System.nanoTime() < deadline) Thread.sleep(10);
+        assertEquals(0, clusterBroadcast.pendingBatches());
+    }
+
+    /**
+     * Connects a client to a node and subscribes it to topic.
+     * @return the publications the client receives
+     */
+    private BlockingQueue<String> subscribe(int node, String topic) throws Exception {
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        CompletableFuture<Void> subscribed = new CompletableFuture<>();
+        JsonObject request = new JsonObject().put("type", "subscribe").put("topic", topic);
+        nodes.get(node).createHttpClient().webSocket(ports.get(node), "localhost", "/", ar -> {
+            if (ar.failed()) {
+                subscribed.completeExceptionally(ar.cause());
+                return;
+            }
+            WebSocket ws = ar.result();
+            ws.textMessageHandler(text -> {
+                if (!subscribed.isDone()) subscribed.complete(null);
+                else received.add(text);
+            });
+            ws.writeTextMessage(request.encode());
+        });
+        subscribed.get(10, TimeUnit.SECONDS);
+        return received;
+    }
+
+    /**
+     * Publishes from the first node until every queue got a publication, as consumers registered
+     * on a node take a moment to be known by the others.
+     */
+    @SafeVarargs
+    private final void awaitRelay(BlockingQueue<String>... queues) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (BlockingQueue<String> queue : queues) {
+            while (queue.poll(50, TimeUnit.MILLISECONDS) == null) {
+                assertTrue(System.nanoTime() < deadline, "Publications were not relayed");
+                servers.get(0).publish(TOPIC, new JsonObject().put("seq", -1));
+            }
+        }
+        // Drops the publications still in flight
+        Thread.sleep(200);
+        for (BlockingQueue<String> queue : queues) queue.clear();
+    }
+}
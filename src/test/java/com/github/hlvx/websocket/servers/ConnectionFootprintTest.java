@@ -0,0 +1,146 @@
+package com.github.hlvx.websocket.servers;
+
+import com.github.hlvx.websocket.annotations.TextCommand;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the heap this library adds to an idle connection that sent one command, on top of a bare
+ * Vert.x WebSocket server. See benchmarks/ConnectionFootprint for a larger run.
+ */
+class ConnectionFootprintTest {
+    private static final int CONNECTIONS = 4000;
+    private static final int ROUNDS = 3;
+    private static final long BUDGET = 256;
+    private static final byte[] MESSAGE = "{\"type\":\"ping\"}".getBytes(StandardCharsets.UTF_8);
+
+    public static class Service {
+        @TextCommand(command = "ping")
+        public JsonObject ping(JsonObject data) {
+            return data;
+        }
+    }
+
+    @Test
+    void overheadPerConnectionIsWithinBudget() throws Exception {
+        // Loads and compiles the code of both servers, which other tests of the JVM may not have
+        measure(false, CONNECTIONS / 4);
+        measure(true, CONNECTIONS / 4);
+        // A single round is now and then a few hundred bytes off either way, the median is checked
+        long[] overheads = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; ++i) overheads[i] = measure(true, CONNECTIONS) - measure(false, CONNECTIONS);
+        Arrays.sort(overheads);
+        long overhead = overheads[ROUNDS / 2];
+        assertTrue(overhead <= BUDGET, "WebSocketServer adds " + overhead + " bytes per connection, above "
+                + BUDGET + ", rounds: " + Arrays.toString(overheads));
+    }
+
+    /**
+     * @return the growth of the heap per connection between the first and the second half of the
+     * connections. Each run has its own Vert.x instance so that nothing of the previous one is
+     * released while measuring.
+     */
+    private static long measure(boolean library, int connections) throws Exception {
+        Vertx vertx = Vertx.vertx();
+        List<SocketChannel> clients = new ArrayList<>(connections);
+        try {
+            int port = listen(vertx, library).actualPort();
+            // Memory allocated once, such as the chunks of buffer pools, is taken by the first half
+            for (int i = 0; i < connections / 2; ++i) clients.add(connect(port));
+            long before = usedHeap();
+            for (int i = connections / 2; i < connections; ++i) clients.add(connect(port));
+            long after = usedHeap();
+            return (after - before) / (connections - connections / 2);
+        } finally {
+            for (SocketChannel client : clients) client.close();
+            CompletableFuture<Void> closed = new CompletableFuture<>();
+            vertx.close(ar -> closed.complete(null));
+            closed.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static HttpServer listen(Vertx vertx, boolean library) throws Exception {
+        CompletableFuture<HttpServer> listening = new CompletableFuture<>();
+        if (library) {
+            WebSocketServer server = new WebSocketServer(vertx);
+            server.addServices(new Service());
+            server.start(0, ar -> {
+                if (ar.succeeded()) listening.complete(ar.result());
+                else listening.completeExceptionally(ar.cause());
+            });
+        } else {
+            // Without the compression extension, as WebSocketServer by default
+            vertx.createHttpServer(new HttpServerOptions().setPerMessageWebsocketCompressionSupported(false)
+                    .setPerFrameWebsocketCompressionSupported(false))
+                    .websocketHandler(ws -> ws.textMessageHandler(ws::writeTextMessage))
+                    .listen(0, ar -> {
+                        if (ar.succeeded()) listening.complete(ar.result());
+                        else listening.completeExceptionally(ar.cause());
+                    });
+        }
+        return listening.get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Opens a connection, sends one text frame once the handshake is done and waits for the
+     * response.
+     */
+    private static SocketChannel connect(int port) throws IOException {
+        SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", port));
+        channel.write(ByteBuffer.wrap(("GET / HTTP/1.1\r\nHost: localhost\r\nUpgrade: websocket\r\n"
+                + "Connection: Upgrade\r\nSec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n"
+                + "Sec-WebSocket-Version: 13\r\n\r\n").getBytes(StandardCharsets.US_ASCII)));
+        ByteBuffer in = ByteBuffer.allocate(1024);
+        read(channel, in, 0);
+        ByteBuffer frame = ByteBuffer.allocate(6 + MESSAGE.length);
+        frame.put((byte) 0x81).put((byte) (0x80 | MESSAGE.length)).putInt(0).put(MESSAGE).flip();
+        channel.write(frame);
+        read(channel, in, 2 + MESSAGE.length);
+        return channel;
+    }
+
+    /**
+     * Reads until the response headers and length more bytes are received.
+     */
+    private static void read(SocketChannel channel, ByteBuffer in, int length) throws IOException {
+        while (true) {
+            String received = new String(in.array(), 0, in.position(), StandardCharsets.ISO_8859_1);
+            int headersEnd = received.indexOf("\r\n\r\n");
+            if (headersEnd >= 0 && received.length() >= headersEnd + 4 + length) return;
+            if (channel.read(in) < 0) throw new IOException("Connection closed");
+        }
+    }
+
+    /**
+     * Collects until the heap settles, as the threads and pools of a closed Vert.x instance are
+     * released some time after it closed.
+     */
+    private static long usedHeap() throws InterruptedException {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 20; ++i) {
+            System.gc();
+            Thread.sleep(200);
+            long previous = used;
+            used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            if (i >= 2 && Math.abs(previous - used) < 16 * 1024) break;
+        }
+        return used;
+    }
+}